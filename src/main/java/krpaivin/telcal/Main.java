@@ -1,5 +1,6 @@
 package krpaivin.telcal;
 
+import java.io.IOException;
 import java.util.logging.Logger;
 
 import org.springframework.boot.SpringApplication;
@@ -9,7 +10,9 @@ import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import krpaivin.telcal.config.TelegramProperties;
 import krpaivin.telcal.telegram.TelegramCalendar;
+import krpaivin.telcal.telegram.WebhookServer;
 
 @SpringBootApplication
 public class Main {
@@ -18,12 +21,17 @@ public class Main {
         ApplicationContext context = SpringApplication.run(Main.class, args);
         try {
             TelegramCalendar telegramCalendar = context.getBean(TelegramCalendar.class);
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            
-            botsApi.registerBot(telegramCalendar);
+            TelegramProperties telegramProperties = context.getBean(TelegramProperties.class);
+
+            if (telegramProperties.isWebhookMode()) {
+                context.getBean(WebhookServer.class).start();
+            } else {
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                botsApi.registerBot(telegramCalendar);
+            }
 
             logger.info("Bot is successfully running.");
-        } catch (TelegramApiException e) {
+        } catch (TelegramApiException | IOException e) {
             logger.severe("Failed to start bot: " + e.getMessage());
         }
     }
@@ -0,0 +1,27 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDateTime;
+
+/**
+ * Key of a cached analytics result.
+ *
+ * @param userId     the ID of the user.
+ * @param calendarId the ID of the calendar, or {@link #ALL_CALENDARS} in the all calendars mode.
+ * @param start      the start of the time range.
+ * @param end        the end of the time range.
+ * @param keyword    the keyword in lower case, empty if there is none.
+ */
+public record AnalyticsKey(String userId, String calendarId, LocalDateTime start, LocalDateTime end,
+        String keyword) {
+
+    public static final String ALL_CALENDARS = "*";
+
+    /**
+     * Creates a key with the keyword normalized, so that "Work " and "work" share an entry.
+     */
+    public static AnalyticsKey of(String userId, String calendarId, LocalDateTime start, LocalDateTime end,
+            String keyword) {
+        String normalized = keyword == null ? "" : keyword.trim().toLowerCase();
+        return new AnalyticsKey(userId, calendarId, start, end, normalized);
+    }
+}
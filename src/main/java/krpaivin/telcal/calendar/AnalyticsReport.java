@@ -0,0 +1,159 @@
+package krpaivin.telcal.calendar;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of an analytics request: totals and breakdowns of the events in a time range,
+ * all durations in minutes. Days, weeks and the start of the longest event are in the
+ * time zone of the calendar. Rendering is left to the caller.
+ *
+ * @param eventCount   the number of events.
+ * @param totalMinutes the total duration of the events.
+ * @param longest      the longest event, null if there are no events.
+ * @param days         the days with events, in chronological order.
+ * @param weeks        the weeks (starting on Monday) with events, in chronological order.
+ * @param weekdays     the seven days of the week, starting with Monday.
+ * @param months       the months of the range, in chronological order.
+ * @param keywords     the keywords of the user; an event matching several keywords is
+ *                     counted in each of them.
+ * @param zone         the time zone of the calendar the report was computed in.
+ */
+public record AnalyticsReport(long eventCount, long totalMinutes, LongestEvent longest, List<Bucket> days,
+        List<Bucket> weeks, List<Bucket> weekdays, List<Bucket> months, List<Bucket> keywords, ZoneId zone) {
+
+    /**
+     * Events counted under one label of a breakdown.
+     *
+     * @param label   the day, week, weekday, month or keyword.
+     * @param events  the number of events.
+     * @param minutes the total duration of the events.
+     */
+    public record Bucket(String label, long events, long minutes) {
+    }
+
+    /**
+     * @param start   the start of the event, in the time zone of the calendar.
+     * @param minutes the duration of the event.
+     * @param summary the title of the event, may be null.
+     */
+    public record LongestEvent(LocalDateTime start, long minutes, String summary) {
+    }
+
+    /**
+     * Returns the average duration of an event.
+     *
+     * @return the average in minutes, 0 if there are no events.
+     */
+    public long averageMinutes() {
+        return eventCount == 0 ? 0 : totalMinutes / eventCount;
+    }
+
+    /**
+     * Checks whether the report was bucketed by the same keywords, i.e. whether a cached
+     * report is still valid for the user.
+     *
+     * @param otherKeywords the current keywords of the user, in lower case.
+     * @return true if the keywords are the same.
+     */
+    public boolean hasKeywords(List<String> otherKeywords) {
+        return keywords.stream().map(Bucket::label).toList().equals(otherKeywords);
+    }
+
+    /**
+     * Combines the aggregators of consecutive shards into the report of the whole range.
+     *
+     * @param shards        the shards of the range, in chronological order.
+     * @param aggregators   the completed aggregator of every shard, in the same order.
+     * @param keywordLabels the keywords the aggregators bucketed events by.
+     * @param zone          the time zone the aggregators counted days in.
+     * @return the report.
+     */
+    public static AnalyticsReport combine(List<AnalyticsShard> shards, List<EventAggregator> aggregators,
+            List<String> keywordLabels, ZoneId zone) {
+        long eventCount = 0;
+        long totalMinutes = 0;
+        EventAggregator longest = null;
+        int[] eventsPerWeekday = new int[7];
+        long[] minutesPerWeekday = new long[7];
+        long[] eventsPerKeyword = new long[keywordLabels.size()];
+        long[] minutesPerKeyword = new long[keywordLabels.size()];
+        List<Bucket> days = new ArrayList<>();
+        List<Bucket> weeks = new ArrayList<>();
+        List<Bucket> months = new ArrayList<>();
+
+        LocalDate weekStart = null;
+        long weekEvents = 0;
+        long weekMinutes = 0;
+
+        for (int s = 0; s < aggregators.size(); s++) {
+            EventAggregator aggregator = aggregators.get(s);
+            eventCount += aggregator.getEventCount();
+            totalMinutes += aggregator.getTotalMinutes();
+            months.add(new Bucket(shards.get(s).label(), aggregator.getEventCount(), aggregator.getTotalMinutes()));
+            if (aggregator.getEventCount() > 0
+                    && (longest == null || aggregator.getLongestMinutes() > longest.getLongestMinutes())) {
+                longest = aggregator;
+            }
+
+            for (int d = 0; d < 7; d++) {
+                eventsPerWeekday[d] += aggregator.getEventsPerWeekday()[d];
+                minutesPerWeekday[d] += aggregator.getMinutesPerWeekday()[d];
+            }
+            for (int k = 0; k < eventsPerKeyword.length; k++) {
+                eventsPerKeyword[k] += aggregator.getEventsPerKeyword()[k];
+                minutesPerKeyword[k] += aggregator.getMinutesPerKeyword()[k];
+            }
+
+            int[] eventsPerDay = aggregator.getEventsPerDay();
+            long[] minutesPerDay = aggregator.getMinutesPerDay();
+            for (int d = 0; d < eventsPerDay.length; d++) {
+                if (eventsPerDay[d] == 0) {
+                    continue;
+                }
+                LocalDate day = aggregator.getFirstDay().plusDays(d);
+                days.add(new Bucket(day.toString(), eventsPerDay[d], minutesPerDay[d]));
+
+                LocalDate monday = day.with(DayOfWeek.MONDAY);
+                if (!monday.equals(weekStart)) {
+                    if (weekStart != null) {
+                        weeks.add(new Bucket(weekStart.toString(), weekEvents, weekMinutes));
+                    }
+                    weekStart = monday;
+                    weekEvents = 0;
+                    weekMinutes = 0;
+                }
+                weekEvents += eventsPerDay[d];
+                weekMinutes += minutesPerDay[d];
+            }
+        }
+        if (weekStart != null) {
+            weeks.add(new Bucket(weekStart.toString(), weekEvents, weekMinutes));
+        }
+
+        List<Bucket> weekdays = new ArrayList<>(7);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            int d = dayOfWeek.getValue() - 1;
+            weekdays.add(new Bucket(dayOfWeek.getDisplayName(TextStyle.SHORT, Locale.ENGLISH),
+                    eventsPerWeekday[d], minutesPerWeekday[d]));
+        }
+        List<Bucket> keywords = new ArrayList<>(keywordLabels.size());
+        for (int k = 0; k < keywordLabels.size(); k++) {
+            keywords.add(new Bucket(keywordLabels.get(k), eventsPerKeyword[k], minutesPerKeyword[k]));
+        }
+
+        LongestEvent longestEvent = longest == null ? null : new LongestEvent(
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(longest.getLongestStart()), zone),
+                longest.getLongestMinutes(), longest.getLongestSummary());
+
+        return new AnalyticsReport(eventCount, totalMinutes, longestEvent, List.copyOf(days), List.copyOf(weeks),
+                List.copyOf(weekdays), List.copyOf(months), List.copyOf(keywords), zone);
+    }
+}
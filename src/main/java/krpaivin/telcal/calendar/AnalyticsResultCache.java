@@ -0,0 +1,148 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import krpaivin.telcal.config.StatsSource;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Cache of analytics results, invalidated whenever the events of a user change: when
+ * the bot creates an event or when the event mirror pulls changes from Google.
+ *
+ * Besides the results of whole requests, the aggregators of historical month shards are
+ * cached, so a long range only fetches the months that are not cached yet. When the
+ * time of a change is known, only the entries whose range contains it are dropped.
+ *
+ * Every invalidation increments a generation number of the user. A result computed
+ * while an invalidation happened is not stored, so a stale result never overwrites
+ * the invalidation.
+ */
+@RequiredArgsConstructor
+@Component
+public class AnalyticsResultCache implements StatsSource {
+    private final Cache<AnalyticsKey, AnalyticsReport> analyticsResultCache;
+    private final Cache<AnalyticsKey, EventAggregator> analyticsShardCache;
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached result for the key.
+     *
+     * @param key the analytics request.
+     * @return the result, or null if it is not cached.
+     */
+    public AnalyticsReport getIfPresent(AnalyticsKey key) {
+        return analyticsResultCache.getIfPresent(key);
+    }
+
+    /**
+     * Returns the cached aggregator of a shard.
+     *
+     * @param key the analytics request limited to the shard.
+     * @return the completed aggregator, or null if it is not cached.
+     */
+    public EventAggregator getShard(AnalyticsKey key) {
+        return analyticsShardCache.getIfPresent(key);
+    }
+
+    /**
+     * Returns the current generation of the user, to be passed to {@link #put} after the
+     * result has been computed.
+     *
+     * @param userId the ID of the user.
+     * @return the generation number.
+     */
+    public long generation(String userId) {
+        return generations.getOrDefault(userId, 0L);
+    }
+
+    /**
+     * Stores a result unless the events of the user changed while it was computed.
+     *
+     * @param key        the analytics request.
+     * @param result     the computed result.
+     * @param generation the generation of the user read before computing the result.
+     */
+    public void put(AnalyticsKey key, AnalyticsReport result, long generation) {
+        analyticsResultCache.asMap().compute(key, (k, current) ->
+                generation(key.userId()) == generation ? result : current);
+    }
+
+    /**
+     * Stores the aggregator of a shard unless the events of the user changed while it
+     * was filled.
+     *
+     * @param key        the analytics request limited to the shard.
+     * @param aggregator the completed aggregator.
+     * @param generation the generation of the user read before filling the aggregator.
+     */
+    public void putShard(AnalyticsKey key, EventAggregator aggregator, long generation) {
+        analyticsShardCache.asMap().compute(key, (k, current) ->
+                generation(key.userId()) == generation ? aggregator : current);
+    }
+
+    /**
+     * Drops the results that include the calendar of the user.
+     *
+     * @param userId     the ID of the user.
+     * @param calendarId the ID of the changed calendar.
+     */
+    public void invalidate(String userId, String calendarId) {
+        generations.merge(userId, 1L, Long::sum);
+        analyticsResultCache.asMap().keySet().removeIf(key -> includes(key, userId, calendarId));
+        analyticsShardCache.asMap().keySet().removeIf(key -> includes(key, userId, calendarId));
+    }
+
+    /**
+     * Drops the results that include the calendar of the user and overlap the changed
+     * time range.
+     *
+     * @param userId     the ID of the user.
+     * @param calendarId the ID of the changed calendar.
+     * @param fromMillis the start of the changed time range.
+     * @param toMillis   the end of the changed time range.
+     */
+    public void invalidate(String userId, String calendarId, long fromMillis, long toMillis) {
+        generations.merge(userId, 1L, Long::sum);
+        analyticsResultCache.asMap().keySet().removeIf(key -> includes(key, userId, calendarId)
+                && overlaps(key, fromMillis, toMillis));
+        analyticsShardCache.asMap().keySet().removeIf(key -> includes(key, userId, calendarId)
+                && overlaps(key, fromMillis, toMillis));
+    }
+
+    private boolean includes(AnalyticsKey key, String userId, String calendarId) {
+        return key.userId().equals(userId)
+                && (key.calendarId().equals(calendarId) || AnalyticsKey.ALL_CALENDARS.equals(key.calendarId()));
+    }
+
+    /**
+     * The times of analytics requests are in UTC, see
+     * {@link GoogleCalendarService#analyticsEventsByKeyword}.
+     */
+    private boolean overlaps(AnalyticsKey key, long fromMillis, long toMillis) {
+        return toMillis >= toMillis(key.start()) && fromMillis <= toMillis(key.end());
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @Override
+    public String getStats() {
+        CacheStats stats = analyticsResultCache.stats();
+        CacheStats shardStats = analyticsShardCache.stats();
+        return String.format("Analytics cache: %d entries, hit ratio %.1f%% (%d hits, %d misses, %d evictions)%n"
+                + "Analytics shard cache: %d entries, hit ratio %.1f%% (%d hits, %d misses, %d evictions)",
+                analyticsResultCache.estimatedSize(), stats.hitRate() * 100, stats.hitCount(), stats.missCount(),
+                stats.evictionCount(),
+                analyticsShardCache.estimatedSize(), shardStats.hitRate() * 100, shardStats.hitCount(),
+                shardStats.missCount(), shardStats.evictionCount());
+    }
+}
@@ -0,0 +1,59 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A part of an analytics time range, at most one calendar month long. Long ranges are
+ * split into shards that are fetched in parallel and cached separately.
+ *
+ * An event belongs to the shard in which it starts, so the totals of a shard do not
+ * depend on the range it was split from and can be reused by other requests.
+ *
+ * @param start the start of the shard, inclusive.
+ * @param end   the end of the shard, exclusive.
+ */
+public record AnalyticsShard(LocalDateTime start, LocalDateTime end) {
+    private static final DateTimeFormatter LABEL_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /**
+     * Splits the time range at the month boundaries.
+     *
+     * @param start the start of the range, inclusive.
+     * @param end   the end of the range, exclusive.
+     * @return the shards in chronological order, empty if the range is empty.
+     */
+    public static List<AnalyticsShard> split(LocalDateTime start, LocalDateTime end) {
+        List<AnalyticsShard> shards = new ArrayList<>();
+        LocalDateTime shardStart = start;
+        while (shardStart.isBefore(end)) {
+            LocalDateTime nextMonth = shardStart.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            LocalDateTime shardEnd = nextMonth.isBefore(end) ? nextMonth : end;
+            shards.add(new AnalyticsShard(shardStart, shardEnd));
+            shardStart = shardEnd;
+        }
+        return shards;
+    }
+
+    /**
+     * Checks whether the shard lies entirely before the current month, so its events are
+     * unlikely to change.
+     *
+     * @param now the current time.
+     * @return true if the shard is historical.
+     */
+    public boolean isHistorical(LocalDateTime now) {
+        return !end.isAfter(now.toLocalDate().withDayOfMonth(1).atStartOfDay());
+    }
+
+    /**
+     * Returns the month of the shard, e.g. "2024-03".
+     *
+     * @return the label shown in the monthly breakdown.
+     */
+    public String label() {
+        return start.format(LABEL_FORMATTER);
+    }
+}
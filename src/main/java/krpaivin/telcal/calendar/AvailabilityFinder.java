@@ -0,0 +1,116 @@
+package krpaivin.telcal.calendar;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Computes free time from busy intervals.
+ *
+ * The busy intervals of all calendars are sorted by start and merged, then every day of
+ * the period is walked once: the working hours of the day minus the merged intervals
+ * overlapping them give the free slots. Sorting dominates, so the cost is
+ * O(n log n) for n busy intervals plus one step per day.
+ */
+public class AvailabilityFinder {
+
+    private AvailabilityFinder() {}
+
+    /**
+     * Finds the free slots within the working hours of the period.
+     *
+     * @param busy            the busy intervals, in any order and possibly overlapping.
+     * @param from            the start of the period.
+     * @param to              the end of the period.
+     * @param zone            the time zone of the working hours.
+     * @param dayStart        the start of the working hours.
+     * @param dayEnd          the end of the working hours, after {@code dayStart}.
+     * @param workingDaysOnly true to skip Saturdays and Sundays.
+     * @param minDuration     the shortest slot worth reporting.
+     * @return the free slots ordered by start.
+     */
+    public static List<TimeSlot> findFreeSlots(List<TimeSlot> busy, ZonedDateTime from, ZonedDateTime to,
+            ZoneId zone, LocalTime dayStart, LocalTime dayEnd, boolean workingDaysOnly, Duration minDuration) {
+        List<TimeSlot> merged = merge(busy);
+        List<TimeSlot> free = new ArrayList<>();
+        int first = 0;
+
+        LocalDate lastDay = to.withZoneSameInstant(zone).toLocalDate();
+        for (LocalDate day = from.withZoneSameInstant(zone).toLocalDate(); !day.isAfter(lastDay);
+                day = day.plusDays(1)) {
+            if (workingDaysOnly && isWeekend(day)) {
+                continue;
+            }
+            ZonedDateTime windowStart = latest(day.atTime(dayStart).atZone(zone), from);
+            ZonedDateTime windowEnd = earliest(day.atTime(dayEnd).atZone(zone), to);
+            if (!windowStart.isBefore(windowEnd)) {
+                continue;
+            }
+
+            // Intervals ending before this window cannot overlap any later window either
+            while (first < merged.size() && !merged.get(first).end().isAfter(windowStart)) {
+                first++;
+            }
+
+            ZonedDateTime freeFrom = windowStart;
+            for (int i = first; i < merged.size() && merged.get(i).start().isBefore(windowEnd); i++) {
+                TimeSlot interval = merged.get(i);
+                addIfLongEnough(free, freeFrom, interval.start(), minDuration);
+                if (interval.end().isAfter(freeFrom)) {
+                    freeFrom = interval.end();
+                }
+            }
+            addIfLongEnough(free, freeFrom, windowEnd, minDuration);
+        }
+        return free;
+    }
+
+    /**
+     * Sorts the intervals by start and merges the overlapping and adjacent ones.
+     *
+     * @param intervals the intervals to merge.
+     * @return disjoint intervals ordered by start.
+     */
+    static List<TimeSlot> merge(List<TimeSlot> intervals) {
+        List<TimeSlot> sorted = new ArrayList<>(intervals);
+        sorted.sort(Comparator.comparing(TimeSlot::start));
+
+        List<TimeSlot> merged = new ArrayList<>();
+        for (TimeSlot interval : sorted) {
+            int last = merged.size() - 1;
+            if (last >= 0 && !interval.start().isAfter(merged.get(last).end())) {
+                if (interval.end().isAfter(merged.get(last).end())) {
+                    merged.set(last, new TimeSlot(merged.get(last).start(), interval.end()));
+                }
+            } else {
+                merged.add(interval);
+            }
+        }
+        return merged;
+    }
+
+    private static void addIfLongEnough(List<TimeSlot> free, ZonedDateTime start, ZonedDateTime end,
+            Duration minDuration) {
+        if (start.isBefore(end) && Duration.between(start, end).compareTo(minDuration) >= 0) {
+            free.add(new TimeSlot(start, end));
+        }
+    }
+
+    private static boolean isWeekend(LocalDate day) {
+        return day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private static ZonedDateTime latest(ZonedDateTime first, ZonedDateTime second) {
+        return first.isBefore(second) ? second : first;
+    }
+
+    private static ZonedDateTime earliest(ZonedDateTime first, ZonedDateTime second) {
+        return first.isBefore(second) ? first : second;
+    }
+}
@@ -0,0 +1,35 @@
+package krpaivin.telcal.calendar;
+
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.services.calendar.Calendar;
+
+/**
+ * Google Calendar client of a single user together with the credential it was built with.
+ */
+public class CalendarClient {
+    private final Calendar service;
+    private final Credential credential;
+
+    public CalendarClient(Calendar service, Credential credential) {
+        this.service = service;
+        this.credential = credential;
+    }
+
+    public Calendar getService() {
+        return service;
+    }
+
+    public Credential getCredential() {
+        return credential;
+    }
+
+    /**
+     * Checks whether the client was built for the specified refresh token.
+     *
+     * @param refreshToken the refresh token currently stored for the user.
+     * @return true if the client can be reused; false if the tokens were rotated.
+     */
+    public boolean isIssuedFor(String refreshToken) {
+        return refreshToken != null && refreshToken.equals(credential.getRefreshToken());
+    }
+}
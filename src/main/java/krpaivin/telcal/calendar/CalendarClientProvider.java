@@ -0,0 +1,132 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.ClientParametersAuthentication;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.CredentialRefreshListener;
+import com.google.api.client.auth.oauth2.TokenErrorResponse;
+import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.services.calendar.Calendar;
+
+import krpaivin.telcal.config.Constants;
+import krpaivin.telcal.config.CredentialsManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Provides Google Calendar clients built on the shared HTTP transport and caches them
+ * per user.
+ *
+ * A cached client is reused until the refresh token stored for the user changes, which
+ * happens when the user authorizes the bot again. Access tokens are refreshed and
+ * saved through the {@link TokenManager}.
+ */
+@RequiredArgsConstructor
+@Component
+public class CalendarClientProvider {
+
+    private final HttpTransport googleHttpTransport;
+    private final TokenManager tokenManager;
+    private final CalendarResilience calendarResilience;
+    private final Cache<String, CalendarClient> calendarClientCache;
+
+    /**
+     * Returns the Calendar client of the user, waiting for a token refresh only if the
+     * access token has already expired.
+     *
+     * @param userId         the unique identifier of the user.
+     * @param mapCredentials a map containing user credentials, including access
+     *                       token, refresh token and token expiration time.
+     * @return the Calendar client of the user.
+     * @throws IOException if an error occurs while refreshing the token.
+     */
+    public CalendarClient getClient(String userId, Map<String, String> mapCredentials) throws IOException {
+        String refreshToken = mapCredentials.get(userId + Constants.BD_FIELD_REFRESH_TOKEN);
+
+        CalendarClient client = calendarClientCache.getIfPresent(userId);
+        if (client == null || !client.isIssuedFor(refreshToken)) {
+            client = createClient(userId, mapCredentials);
+            calendarClientCache.put(userId, client);
+        }
+
+        tokenManager.ensureValid(userId, client.getCredential());
+        return client;
+    }
+
+    /**
+     * Drops the cached client of the user, e.g. after a new authorization.
+     *
+     * @param userId the unique identifier of the user.
+     */
+    public void invalidate(String userId) {
+        calendarClientCache.invalidate(userId);
+    }
+
+    /**
+     * Builds a Calendar client with a credential initialized from the stored tokens.
+     *
+     * @param userId         the unique identifier of the user.
+     * @param mapCredentials a map containing user credentials.
+     * @return the new client.
+     */
+    private CalendarClient createClient(String userId, Map<String, String> mapCredentials) {
+        String accessToken = mapCredentials.get(userId + Constants.BD_FIELD_ACCESS_TOKEN);
+        String refreshToken = mapCredentials.get(userId + Constants.BD_FIELD_REFRESH_TOKEN);
+        long expirationTime = Long.parseLong(mapCredentials.get(userId + Constants.BD_FIELD_EXP_TIME_TOKEN));
+
+        Credential credential = new Credential.Builder(BearerToken.authorizationHeaderAccessMethod())
+                .setJsonFactory(Constants.JSON_FACTORY)
+                .setTransport(googleHttpTransport)
+                .setClientAuthentication(new ClientParametersAuthentication(
+                        CredentialsManager.getClientId(), CredentialsManager.getClientSecret()))
+                .setTokenServerEncodedUrl(Constants.OAUTH_PATH_TOKEN)
+                .addRefreshListener(new TokenSavingListener(userId))
+                .build()
+                .setAccessToken(accessToken)
+                .setRefreshToken(refreshToken)
+                .setExpirationTimeMilliseconds(expirationTime);
+
+        return new CalendarClient(buildService(credential), credential);
+    }
+
+    /**
+     * Builds a Calendar service for the given credential on the shared transport, with
+     * retries and circuit breaking applied to every request.
+     *
+     * @param credential the user's Google API credentials.
+     * @return the Calendar service.
+     */
+    public Calendar buildService(Credential credential) {
+        return new Calendar.Builder(googleHttpTransport, Constants.JSON_FACTORY, calendarResilience.wrap(credential))
+                .setApplicationName(Constants.APPLICATION_NAME)
+                .build();
+    }
+
+    /**
+     * Queues the tokens to be saved after every successful refresh, whether it was
+     * triggered by the {@link TokenManager} or by the client on an expired token.
+     */
+    private class TokenSavingListener implements CredentialRefreshListener {
+        private final String userId;
+
+        private TokenSavingListener(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void onTokenResponse(Credential credential, TokenResponse tokenResponse) {
+            tokenManager.saveTokensAsync(userId, credential);
+        }
+
+        @Override
+        public void onTokenErrorResponse(Credential credential, TokenErrorResponse tokenErrorResponse) {
+            calendarClientCache.invalidate(userId);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package krpaivin.telcal.calendar;
+
+import com.google.api.services.calendar.model.CalendarListEntry;
+
+/**
+ * Cached properties of a calendar that are needed by calendar operations.
+ *
+ * @param calendarId the ID of the calendar.
+ * @param timeZone   the time zone of the calendar.
+ * @param summary    the title of the calendar.
+ * @param accessRole the access role of the user to the calendar.
+ * @param etag       the ETag of the calendar list entry, used for revalidation.
+ * @param fetchedAt  the time the data was fetched or revalidated, in milliseconds.
+ */
+public record CalendarMetadata(String calendarId, String timeZone, String summary, String accessRole, String etag,
+        long fetchedAt) {
+
+    /**
+     * Creates metadata from a calendar list entry.
+     *
+     * @param entry the calendar list entry returned by Google.
+     * @return the metadata of the calendar.
+     */
+    public static CalendarMetadata from(CalendarListEntry entry) {
+        return new CalendarMetadata(entry.getId(), entry.getTimeZone(), entry.getSummary(), entry.getAccessRole(),
+                entry.getEtag(), System.currentTimeMillis());
+    }
+
+    /**
+     * Returns a copy marked as revalidated now.
+     *
+     * @return the revalidated metadata.
+     */
+    public CalendarMetadata revalidated() {
+        return new CalendarMetadata(calendarId, timeZone, summary, accessRole, etag, System.currentTimeMillis());
+    }
+
+    /**
+     * Checks whether the data is older than the specified time to live.
+     *
+     * @param ttlMillis the time to live in milliseconds.
+     * @return true if the data should be revalidated; false otherwise.
+     */
+    public boolean isStale(long ttlMillis) {
+        return System.currentTimeMillis() - fetchedAt > ttlMillis;
+    }
+}
@@ -0,0 +1,81 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.CalendarListEntry;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Keeps calendar metadata (time zone, title, access role) so that calendar operations
+ * do not have to request the calendar before every call.
+ *
+ * Entries are filled from the calendar list when the user authorizes the bot. An entry
+ * older than the revalidation period is checked with a conditional request carrying its
+ * ETag; if Google is unavailable, the stale entry is used.
+ */
+@RequiredArgsConstructor
+@Component
+public class CalendarMetadataProvider {
+    private static final Logger logger = Logger.getLogger(CalendarMetadataProvider.class.getName());
+    private static final long REVALIDATE_AFTER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Cache<String, CalendarMetadata> calendarMetadataCache;
+
+    /**
+     * Stores the metadata of a calendar list entry.
+     *
+     * @param entry the calendar list entry returned by Google.
+     * @return the stored metadata.
+     */
+    public CalendarMetadata put(CalendarListEntry entry) {
+        CalendarMetadata metadata = CalendarMetadata.from(entry);
+        calendarMetadataCache.put(metadata.calendarId(), metadata);
+        return metadata;
+    }
+
+    /**
+     * Returns the metadata of the calendar, loading or revalidating it if necessary.
+     *
+     * @param service    the Calendar client of the user.
+     * @param calendarId the ID of the calendar.
+     * @return the metadata of the calendar.
+     * @throws IOException if the metadata is not cached and cannot be loaded.
+     */
+    public CalendarMetadata get(Calendar service, String calendarId) throws IOException {
+        CalendarMetadata cached = calendarMetadataCache.getIfPresent(calendarId);
+        if (cached != null && !cached.isStale(REVALIDATE_AFTER_MILLIS)) {
+            return cached;
+        }
+
+        try {
+            Calendar.CalendarList.Get request = service.calendarList().get(calendarId)
+                    .setFields(FieldMask.CALENDAR_METADATA.getFields());
+            if (cached != null && cached.etag() != null) {
+                request.getRequestHeaders().setIfNoneMatch(cached.etag());
+            }
+            return put(request.execute());
+        } catch (IOException e) {
+            if (cached == null) {
+                throw e;
+            }
+            if (e instanceof HttpResponseException response
+                    && response.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED) {
+                CalendarMetadata revalidated = cached.revalidated();
+                calendarMetadataCache.put(calendarId, revalidated);
+                return revalidated;
+            }
+            // Not marked as revalidated, so the next call checks again
+            logger.warning("Using stale metadata of calendar " + calendarId + ": " + e.getMessage());
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonErrorContainer;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpBackOffIOExceptionHandler;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+
+import krpaivin.telcal.config.Constants;
+import krpaivin.telcal.config.StatsSource;
+import krpaivin.telcal.config.TelegramProperties;
+
+/**
+ * Retry, backoff and circuit breaking for all requests sent by the Google Calendar clients.
+ *
+ * {@link #wrap(HttpRequestInitializer)} decorates the credential of a client, so every
+ * request, including the pages of a list and batch requests, gets:
+ *     Retries with jittered exponential backoff on 429, 5xx, rate limit 403 and I/O errors,
+ *     up to {@code calendarMaxAttempts} attempts and {@code calendarBackoffMaxElapsedMillis}.
+ *     A circuit breaker per endpoint (method and resource), failing fast with
+ *     {@link CircuitOpenException} while Google keeps failing.
+ *
+ * Retried inserts are made idempotent by a client generated event ID, see
+ * {@link #insertIdempotently}.
+ */
+@Component
+public class CalendarResilience implements StatsSource {
+    private static final int HTTP_FORBIDDEN = 403;
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private final TelegramProperties telegramProperties;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong duplicateInserts = new AtomicLong();
+
+    public CalendarResilience(TelegramProperties telegramProperties) {
+        this.telegramProperties = telegramProperties;
+    }
+
+    /**
+     * Decorates the request initializer of a Calendar client with retries and circuit
+     * breaking. The handlers installed by the delegate, such as the token refresh of a
+     * credential on 401, keep working.
+     *
+     * @param delegate the initializer to decorate, usually the user's credential.
+     * @return the decorated initializer.
+     */
+    public HttpRequestInitializer wrap(HttpRequestInitializer delegate) {
+        return request -> {
+            if (delegate != null) {
+                delegate.initialize(request);
+            }
+            ExponentialBackOff backOff = new ExponentialBackOff.Builder()
+                    .setInitialIntervalMillis(telegramProperties.getCalendarBackoffInitialMillis())
+                    .setMaxIntervalMillis(telegramProperties.getCalendarBackoffMaxMillis())
+                    .setMaxElapsedTimeMillis(telegramProperties.getCalendarBackoffMaxElapsedMillis())
+                    .setRandomizationFactor(0.5)
+                    .setMultiplier(2)
+                    .build();
+
+            request.setNumberOfRetries(telegramProperties.getCalendarMaxAttempts() - 1);
+            request.setInterceptor(new BreakerInterceptor(request.getInterceptor()));
+            request.setUnsuccessfulResponseHandler(new RetryHandler(request.getUnsuccessfulResponseHandler(),
+                    new HttpBackOffUnsuccessfulResponseHandler(backOff).setBackOffRequired(
+                            response -> isRetryableStatus(response.getStatusCode())
+                                    || response.getStatusCode() == HTTP_FORBIDDEN)));
+
+            HttpBackOffIOExceptionHandler ioExceptionHandler = new HttpBackOffIOExceptionHandler(backOff);
+            request.setIOExceptionHandler((failedRequest, supportsRetry) -> {
+                breakerOf(failedRequest).recordFailure();
+                boolean retry = ioExceptionHandler.handleIOException(failedRequest, supportsRetry);
+                if (retry) {
+                    retries.incrementAndGet();
+                }
+                return retry;
+            });
+            request.setResponseInterceptor(response -> {
+                if (!isRetryableStatus(response.getStatusCode())) {
+                    breakerOf(response.getRequest()).recordSuccess();
+                }
+            });
+        };
+    }
+
+    /**
+     * Executes an insert of an event that carries a client generated ID. If an earlier
+     * attempt was stored by Google although its response was lost, the retry is answered
+     * with 409 Conflict; since the ID is unique, this means the event exists and the
+     * insert succeeded.
+     *
+     * @param insert the insert request.
+     * @param event  the inserted event with its ID set.
+     * @return the created event.
+     * @throws IOException if the insert fails.
+     */
+    public Event insertIdempotently(Calendar.Events.Insert insert, Event event) throws IOException {
+        try {
+            return insert.execute();
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == HTTP_CONFLICT) {
+                duplicateInserts.incrementAndGet();
+                return event;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether a failed insert of a batch actually succeeded on an earlier attempt.
+     *
+     * @param statusCode the status code of the failed item.
+     * @return true if the event already exists.
+     */
+    public boolean isDuplicateInsert(int statusCode) {
+        if (statusCode == HTTP_CONFLICT) {
+            duplicateInserts.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a 403 reports an exceeded rate limit, which Google answers with
+     * 403 as well as with 429.
+     *
+     * @param details the parsed error of the response, may be null.
+     * @return true if the request may be retried.
+     */
+    private static boolean isRateLimited(GoogleJsonError details) {
+        if (details == null || details.getErrors() == null) {
+            return false;
+        }
+        return details.getErrors().stream()
+                .anyMatch(error -> "rateLimitExceeded".equals(error.getReason())
+                        || "userRateLimitExceeded".equals(error.getReason()));
+    }
+
+    /**
+     * Parses the error of a response from its already read body.
+     *
+     * @return the error, or null if the body is not a Google JSON error.
+     */
+    private static GoogleJsonError parseError(String content) {
+        try {
+            GoogleJsonErrorContainer container = Constants.JSON_FACTORY.fromString(content,
+                    GoogleJsonErrorContainer.class);
+            return container.getError();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds the exception the client would have thrown for the response. Needed once
+     * the body of a 403 has been read to look for a rate limit: the response can not be
+     * read again, so the body and the parsed error are passed on explicitly.
+     */
+    private static GoogleJsonResponseException toException(HttpResponse response, String content,
+            GoogleJsonError details) throws IOException {
+        StringBuilder message = HttpResponseException.computeMessageBuffer(response);
+        if (details != null) {
+            message.append(System.lineSeparator()).append(details.toPrettyString());
+        } else if (!content.isEmpty()) {
+            message.append(System.lineSeparator()).append(content);
+        }
+        return new GoogleJsonResponseException(new HttpResponseException.Builder(response.getStatusCode(),
+                response.getStatusMessage(), response.getHeaders()).setContent(content).setMessage(message.toString()),
+                details);
+    }
+
+    private boolean isRetryableStatus(int statusCode) {
+        return statusCode == HTTP_TOO_MANY_REQUESTS || statusCode >= HTTP_SERVER_ERROR;
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint of the request. Looked up when the
+     * request is executed, since the URL is not set yet when the request is initialized.
+     */
+    private CircuitBreaker breakerOf(HttpRequest request) {
+        return breakers.computeIfAbsent(endpointOf(request), key -> new CircuitBreaker(
+                telegramProperties.getCalendarBreakerFailureThreshold(),
+                telegramProperties.getCalendarBreakerOpenSeconds() * 1000L));
+    }
+
+    /**
+     * Names the endpoint of a request by its method and resource, e.g. "GET events".
+     * Calendar IDs are not part of the name, so all users share the breakers.
+     */
+    static String endpointOf(HttpRequest request) {
+        String path = request.getUrl().getRawPath();
+        String resource;
+        if (path.contains("/batch")) {
+            resource = "batch";
+        } else if (path.contains("/events")) {
+            resource = "events";
+        } else if (path.contains("/calendarList")) {
+            resource = "calendarList";
+        } else if (path.contains("/freeBusy")) {
+            resource = "freeBusy";
+        } else {
+            resource = "other";
+        }
+        return request.getRequestMethod() + " " + resource;
+    }
+
+    @Override
+    public String getStats() {
+        StringBuilder stats = new StringBuilder(String.format(
+                "Calendar requests: %d attempts, %d retries, %d duplicate inserts ignored",
+                attempts.get(), retries.get(), duplicateInserts.get()));
+        breakers.forEach((endpoint, breaker) -> stats.append(String.format(
+                "%n  %s: %s, opened %d times, %d requests rejected",
+                endpoint, breaker.getState(), breaker.getOpened(), breaker.getRejected())));
+        return stats.toString();
+    }
+
+    /**
+     * Fails fast while the circuit of the endpoint is open.
+     */
+    private class BreakerInterceptor implements HttpExecuteInterceptor {
+        private final HttpExecuteInterceptor delegate;
+
+        private BreakerInterceptor(HttpExecuteInterceptor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void intercept(HttpRequest request) throws IOException {
+            CircuitBreaker breaker = breakerOf(request);
+            if (!breaker.tryAcquire()) {
+                throw new CircuitOpenException(endpointOf(request));
+            }
+            attempts.incrementAndGet();
+            if (delegate != null) {
+                // The client handles neither the response nor I/O errors of a failing
+                // interceptor, so the breaker would never learn how the trial ended
+                try {
+                    delegate.intercept(request);
+                } catch (IOException | RuntimeException e) {
+                    breaker.releaseTrial();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets the delegate handle the response first (e.g. refresh the token on 401) and
+     * backs off on retryable responses otherwise. The body of a 403 is read once to find
+     * out whether it is a rate limit; if it is not retried, the exception is thrown here
+     * with that body, since the client could no longer read it.
+     */
+    private class RetryHandler implements HttpUnsuccessfulResponseHandler {
+        private final HttpUnsuccessfulResponseHandler delegate;
+        private final HttpBackOffUnsuccessfulResponseHandler backOffHandler;
+
+        private RetryHandler(HttpUnsuccessfulResponseHandler delegate,
+                HttpBackOffUnsuccessfulResponseHandler backOffHandler) {
+            this.delegate = delegate;
+            this.backOffHandler = backOffHandler;
+        }
+
+        @Override
+        public boolean handleResponse(HttpRequest request, HttpResponse response, boolean supportsRetry)
+                throws IOException {
+            if (delegate != null && delegate.handleResponse(request, response, supportsRetry)) {
+                return true;
+            }
+            if (isRetryableStatus(response.getStatusCode())) {
+                breakerOf(request).recordFailure();
+            }
+            if (response.getStatusCode() == HTTP_FORBIDDEN) {
+                String content = response.parseAsString();
+                GoogleJsonError details = parseError(content);
+                if (!isRateLimited(details) || !backOffHandler.handleResponse(request, response, supportsRetry)) {
+                    throw toException(response, content, details);
+                }
+                retries.incrementAndGet();
+                return true;
+            }
+            boolean retry = backOffHandler.handleResponse(request, response, supportsRetry);
+            if (retry) {
+                retries.incrementAndGet();
+            }
+            return retry;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package krpaivin.telcal.calendar;
+
+/**
+ * Circuit breaker of a single Google Calendar endpoint.
+ *
+ * After {@code failureThreshold} consecutive failures the circuit opens and requests
+ * fail fast for {@code openMillis}. Then a single trial request is let through: if it
+ * succeeds the circuit closes, otherwise it opens again.
+ */
+class CircuitBreaker {
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long opened;
+    private long rejected;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    /**
+     * Checks whether a request may be sent now.
+     *
+     * @return true if the request may be sent; false if it has to fail fast.
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    /**
+     * Gives back the trial request of a half-open circuit that was never sent, e.g.
+     * because the token refresh before it failed, so that the next request is tried.
+     */
+    synchronized void releaseTrial() {
+        trialInFlight = false;
+    }
+
+    synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            trialInFlight = false;
+            opened++;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    synchronized long getOpened() {
+        return opened;
+    }
+
+    synchronized long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,14 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of the endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String endpoint) {
+        super("Google Calendar endpoint is unavailable: " + endpoint);
+    }
+}
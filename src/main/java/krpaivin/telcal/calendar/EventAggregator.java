@@ -0,0 +1,183 @@
+package krpaivin.telcal.calendar;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.List;
+
+import krpaivin.telcal.data.KeywordMatcher;
+
+/**
+ * Computes all analytics rollups of one shard in a single pass over its events.
+ *
+ * Every rollup is a primitive counter or a primitive array indexed by day, weekday or
+ * keyword, so adding an event creates no collection entries. The title of an event is
+ * matched against all keywords of the user in one pass by a {@link KeywordMatcher}.
+ * Durations are kept in minutes. Days are counted in the time zone of the calendar, so
+ * an event is filed under the day the user sees it on; the shard boundaries stay in UTC
+ * like the rest of the analytics time ranges.
+ *
+ * An aggregator is filled by one thread; once complete it is only read, so completed
+ * aggregators can be cached and combined into an {@link AnalyticsReport}.
+ */
+public class EventAggregator {
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final ZoneId zone;
+    private final ZoneRules zoneRules;
+    private final LocalDate firstDay;
+    private final long firstEpochDay;
+    private final int firstDayOfWeek;
+    private final KeywordMatcher keywordMatcher;
+    private final int[] matchedKeywords;
+
+    private long eventCount;
+    private long totalMinutes;
+    private long longestMinutes = -1;
+    private long longestStart;
+    private String longestSummary;
+
+    private final int[] eventsPerDay;
+    private final long[] minutesPerDay;
+    private final int[] eventsPerWeekday = new int[7];
+    private final long[] minutesPerWeekday = new long[7];
+    private final int[] eventsPerKeyword;
+    private final long[] minutesPerKeyword;
+
+    /**
+     * @param start          the start of the shard in UTC, inclusive.
+     * @param end            the end of the shard in UTC, exclusive.
+     * @param zone           the time zone of the calendar, in which days are counted.
+     * @param keywordMatcher the matcher of the keywords to bucket events by.
+     */
+    public EventAggregator(LocalDateTime start, LocalDateTime end, ZoneId zone, KeywordMatcher keywordMatcher) {
+        this.zone = zone;
+        this.zoneRules = zone.getRules();
+        this.firstDay = LocalDate.ofInstant(start.toInstant(ZoneOffset.UTC), zone);
+        this.firstEpochDay = firstDay.toEpochDay();
+        this.firstDayOfWeek = firstDay.getDayOfWeek().getValue() - 1;
+        this.keywordMatcher = keywordMatcher;
+
+        long lastMillis = end.toInstant(ZoneOffset.UTC).toEpochMilli() - 1;
+        int days = (int) (localEpochDay(lastMillis) - firstEpochDay) + 1;
+        this.eventsPerDay = new int[days];
+        this.minutesPerDay = new long[days];
+        int keywordCount = keywordMatcher.getKeywords().size();
+        this.matchedKeywords = new int[keywordCount];
+        this.eventsPerKeyword = new int[keywordCount];
+        this.minutesPerKeyword = new long[keywordCount];
+    }
+
+    /**
+     * Adds an event to all rollups. The whole duration is counted on the day the event
+     * starts.
+     *
+     * @param startMillis the start of the event.
+     * @param endMillis   the end of the event.
+     * @param summary     the title of the event, may be null.
+     */
+    public void add(long startMillis, long endMillis, String summary) {
+        long minutes = Math.max(0, (endMillis - startMillis) / MILLIS_PER_MINUTE);
+        eventCount++;
+        totalMinutes += minutes;
+
+        if (minutes > longestMinutes) {
+            longestMinutes = minutes;
+            longestStart = startMillis;
+            longestSummary = summary;
+        }
+
+        int day = (int) (localEpochDay(startMillis) - firstEpochDay);
+        if (day >= 0 && day < eventsPerDay.length) {
+            eventsPerDay[day]++;
+            minutesPerDay[day] += minutes;
+            int weekday = (firstDayOfWeek + day) % 7;
+            eventsPerWeekday[weekday]++;
+            minutesPerWeekday[weekday] += minutes;
+        }
+
+        int matched = keywordMatcher.match(summary, matchedKeywords);
+        for (int i = 0; i < matched; i++) {
+            eventsPerKeyword[matchedKeywords[i]]++;
+            minutesPerKeyword[matchedKeywords[i]] += minutes;
+        }
+    }
+
+    /**
+     * Returns the day of an instant in the time zone of the calendar.
+     *
+     * @param millis the instant.
+     * @return the number of days since 1970-01-01.
+     */
+    private long localEpochDay(long millis) {
+        long offsetMillis = zoneRules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(millis + offsetMillis, MILLIS_PER_DAY);
+    }
+
+    /**
+     * Checks whether the aggregator bucketed events by the same keywords, i.e. whether
+     * a cached aggregator is still valid for the user.
+     *
+     * @param otherKeywords the current keywords of the user, in lower case.
+     * @return true if the keywords are the same.
+     */
+    public boolean hasKeywords(List<String> otherKeywords) {
+        return keywordMatcher.getKeywords().equals(otherKeywords);
+    }
+
+    ZoneId getZone() {
+        return zone;
+    }
+
+    LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    long getEventCount() {
+        return eventCount;
+    }
+
+    long getTotalMinutes() {
+        return totalMinutes;
+    }
+
+    long getLongestMinutes() {
+        return longestMinutes;
+    }
+
+    long getLongestStart() {
+        return longestStart;
+    }
+
+    String getLongestSummary() {
+        return longestSummary;
+    }
+
+    int[] getEventsPerDay() {
+        return eventsPerDay;
+    }
+
+    long[] getMinutesPerDay() {
+        return minutesPerDay;
+    }
+
+    int[] getEventsPerWeekday() {
+        return eventsPerWeekday;
+    }
+
+    long[] getMinutesPerWeekday() {
+        return minutesPerWeekday;
+    }
+
+    int[] getEventsPerKeyword() {
+        return eventsPerKeyword;
+    }
+
+    long[] getMinutesPerKeyword() {
+        return minutesPerKeyword;
+    }
+}
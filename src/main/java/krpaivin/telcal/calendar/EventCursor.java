@@ -0,0 +1,32 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+
+import com.google.api.services.calendar.model.Event;
+
+/**
+ * Forward-only sequence of calendar events ordered by start time, read either from
+ * Google Calendar or from the local event mirror.
+ */
+public interface EventCursor extends AutoCloseable {
+    /**
+     * Checks whether there are more events, loading them if necessary.
+     *
+     * @return true if there is another event; false otherwise.
+     * @throws IOException if the events cannot be loaded.
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * Returns the next event. {@link #hasNext()} must be called before.
+     *
+     * @return the next event.
+     */
+    Event next();
+
+    /**
+     * Releases the cursor without reading the remaining events.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,401 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import jakarta.annotation.PreDestroy;
+import krpaivin.telcal.config.TelegramProperties;
+import krpaivin.telcal.config.ThreadFactories;
+import krpaivin.telcal.entity.CalendarSyncState;
+import krpaivin.telcal.entity.CalendarSyncStateRepository;
+import krpaivin.telcal.entity.MirroredEvent;
+import krpaivin.telcal.entity.MirroredEventRepository;
+
+/**
+ * Local copy of the events of a user's calendar kept current with Google sync tokens.
+ *
+ * The first query for a calendar starts a full sync in the background and is answered
+ * by Google directly. Once the full sync has finished, queries are answered from the
+ * database; before that, a mirror older than {@code eventMirrorSyncIntervalSeconds}
+ * pulls only the changes since the last sync. If Google invalidates the sync token
+ * (410 Gone), the mirror is dropped and synced again from scratch.
+ *
+ * Keywords are matched as substrings of the summary, description and location, which
+ * is close to, but not the same as, the full text search of Google Calendar.
+ */
+@Service
+public class EventMirror {
+    private static final Logger logger = Logger.getLogger(EventMirror.class.getName());
+    private static final int HTTP_GONE = 410;
+    private static final String STATUS_CANCELLED = "cancelled";
+
+    private final MirroredEventRepository mirroredEventRepository;
+    private final CalendarSyncStateRepository calendarSyncStateRepository;
+    private final ExecutorService calendarPrefetchExecutor;
+    private final TelegramProperties telegramProperties;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final ExecutorService fullSyncExecutor;
+    private final Set<String> fullSyncsInProgress = ConcurrentHashMap.newKeySet();
+    private final Map<String, Object> syncLocks = new ConcurrentHashMap<>();
+
+    public EventMirror(MirroredEventRepository mirroredEventRepository,
+            CalendarSyncStateRepository calendarSyncStateRepository,
+            @Qualifier("calendarPrefetchExecutor") ExecutorService calendarPrefetchExecutor,
+            TelegramProperties telegramProperties, AnalyticsResultCache analyticsResultCache) {
+        this.mirroredEventRepository = mirroredEventRepository;
+        this.calendarSyncStateRepository = calendarSyncStateRepository;
+        this.calendarPrefetchExecutor = calendarPrefetchExecutor;
+        this.telegramProperties = telegramProperties;
+        this.analyticsResultCache = analyticsResultCache;
+        this.fullSyncExecutor = Executors.newFixedThreadPool(2,
+                ThreadFactories.daemonThreadFactory("event-mirror-sync"));
+    }
+
+    /**
+     * Opens a cursor over the mirrored events of the time range, bringing the mirror up
+     * to date first if needed.
+     *
+     * @param userId     the ID of the user.
+     * @param calendarId the ID of the calendar.
+     * @param service    the Calendar client of the user, used for syncing.
+     * @param start      the start of the time range.
+     * @param end        the end of the time range.
+     * @param keyword    the keyword to filter events by, may be null.
+     * @return the cursor, or an empty Optional if the query has to be sent to Google.
+     */
+    public Optional<EventCursor> query(String userId, String calendarId, Calendar service,
+            DateTime start, DateTime end, String keyword) {
+        if (!telegramProperties.isEventMirrorEnabled() || !isFresh(userId, calendarId, service)) {
+            return Optional.empty();
+        }
+        return Optional.of(new MirrorCursor(userId, calendarId, start.getValue(), end.getValue(),
+                toPattern(keyword), telegramProperties.getCalendarPageSize()));
+    }
+
+    /**
+     * Stores an event just created by the bot, so that it is visible before the next
+     * sync. Does nothing if the calendar is not mirrored.
+     *
+     * @param userId     the ID of the user.
+     * @param calendarId the ID of the calendar.
+     * @param event      the created event with its ID set.
+     */
+    public void recordCreated(String userId, String calendarId, Event event) {
+        if (!telegramProperties.isEventMirrorEnabled()) {
+            return;
+        }
+        try {
+            if (calendarSyncStateRepository.findByUserIdAndCalendarId(userId, calendarId).isPresent()) {
+                upsert(userId, calendarId, event, new ChangedRange());
+            }
+        } catch (RuntimeException e) {
+            // The event comes with the next sync anyway
+            logger.warning("Error storing created event of user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Makes sure the mirror can answer queries: syncs the changes if the last sync is
+     * older than the configured interval, or starts a full sync if there is no mirror yet.
+     *
+     * @return true if the mirror is up to date; false otherwise.
+     */
+    private boolean isFresh(String userId, String calendarId, Calendar service) {
+        String key = userId + ":" + calendarId;
+        if (fullSyncsInProgress.contains(key)) {
+            return false;
+        }
+
+        synchronized (syncLocks.computeIfAbsent(key, k -> new Object())) {
+            Optional<CalendarSyncState> state = calendarSyncStateRepository.findByUserIdAndCalendarId(userId,
+                    calendarId);
+            if (state.isEmpty()) {
+                startFullSync(key, userId, calendarId, service);
+                return false;
+            }
+
+            long interval = TimeUnit.SECONDS.toMillis(telegramProperties.getEventMirrorSyncIntervalSeconds());
+            if (System.currentTimeMillis() - state.get().getSyncedAt() < interval) {
+                return true;
+            }
+
+            try {
+                syncChanges(state.get(), service);
+                return true;
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() == HTTP_GONE) {
+                    logger.info("Sync token expired for user " + userId + ", starting a full sync.");
+                    calendarSyncStateRepository.deleteByCalendar(userId, calendarId);
+                    startFullSync(key, userId, calendarId, service);
+                } else {
+                    logger.warning("Error syncing calendar of user " + userId + ": " + e.getMessage());
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Error syncing calendar of user " + userId, e);
+            }
+            return false;
+        }
+    }
+
+    private void startFullSync(String key, String userId, String calendarId, Calendar service) {
+        if (!fullSyncsInProgress.add(key)) {
+            return;
+        }
+        fullSyncExecutor.execute(() -> {
+            try {
+                synchronized (syncLocks.computeIfAbsent(key, k -> new Object())) {
+                    fullSync(userId, calendarId, service);
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Full sync failed for user " + userId, e);
+            } finally {
+                fullSyncsInProgress.remove(key);
+            }
+        });
+    }
+
+    /**
+     * Replaces the mirror with all events of the calendar. The sync state is written last,
+     * so a partially loaded mirror is never queried.
+     */
+    private void fullSync(String userId, String calendarId, Calendar service) throws IOException {
+        calendarSyncStateRepository.deleteByCalendar(userId, calendarId);
+        mirroredEventRepository.deleteCalendar(userId, calendarId);
+
+        int pageSize = telegramProperties.getCalendarPageSize();
+        Calendar.Events.List request = service.events().list(calendarId)
+                .setFields(FieldMask.MIRRORED_EVENTS.getFields())
+                .setSingleEvents(true)
+                .setMaxResults(pageSize);
+
+        try (EventStream events = new EventStream(request, calendarPrefetchExecutor)) {
+            List<MirroredEvent> batch = new ArrayList<>(pageSize);
+            while (events.hasNext()) {
+                Event event = events.next();
+                if (!STATUS_CANCELLED.equals(event.getStatus()) && hasTimeRange(event)) {
+                    MirroredEvent mirroredEvent = new MirroredEvent();
+                    mirroredEvent.setUserId(userId);
+                    mirroredEvent.setCalendarId(calendarId);
+                    copy(event, mirroredEvent);
+                    batch.add(mirroredEvent);
+                }
+                if (batch.size() >= pageSize) {
+                    mirroredEventRepository.saveAll(batch);
+                    batch.clear();
+                }
+            }
+            mirroredEventRepository.saveAll(batch);
+
+            CalendarSyncState state = new CalendarSyncState();
+            state.setUserId(userId);
+            state.setCalendarId(calendarId);
+            saveState(state, events.getNextSyncToken());
+        }
+        analyticsResultCache.invalidate(userId, calendarId);
+        logger.info("Full sync finished for user " + userId);
+    }
+
+    /**
+     * Applies the changes made since the last sync. Only the analytics results covering
+     * the old or new time of a changed event are invalidated.
+     */
+    private void syncChanges(CalendarSyncState state, Calendar service) throws IOException {
+        Calendar.Events.List request = service.events().list(state.getCalendarId())
+                .setFields(FieldMask.MIRRORED_EVENTS.getFields())
+                .setSingleEvents(true)
+                .setMaxResults(telegramProperties.getCalendarPageSize())
+                .setSyncToken(state.getSyncToken());
+
+        ChangedRange changed = new ChangedRange();
+        try (EventStream events = new EventStream(request, calendarPrefetchExecutor)) {
+            while (events.hasNext()) {
+                Event event = events.next();
+                if (STATUS_CANCELLED.equals(event.getStatus()) || !hasTimeRange(event)) {
+                    mirroredEventRepository
+                            .findByUserIdAndCalendarIdAndEventId(state.getUserId(), state.getCalendarId(), event.getId())
+                            .ifPresent(removed -> changed.include(removed.getStartTime(), removed.getEndTime()));
+                    mirroredEventRepository.deleteEvent(state.getUserId(), state.getCalendarId(), event.getId());
+                } else {
+                    upsert(state.getUserId(), state.getCalendarId(), event, changed);
+                }
+            }
+            saveState(state, events.getNextSyncToken());
+        }
+        if (!changed.isEmpty()) {
+            analyticsResultCache.invalidate(state.getUserId(), state.getCalendarId(), changed.from, changed.to);
+        }
+    }
+
+    private void saveState(CalendarSyncState state, String syncToken) {
+        if (syncToken == null) {
+            throw new IllegalStateException("Google Calendar did not return a sync token");
+        }
+        state.setSyncToken(syncToken);
+        state.setSyncedAt(System.currentTimeMillis());
+        calendarSyncStateRepository.save(state);
+    }
+
+    private void upsert(String userId, String calendarId, Event event, ChangedRange changed) {
+        MirroredEvent mirroredEvent = mirroredEventRepository
+                .findByUserIdAndCalendarIdAndEventId(userId, calendarId, event.getId())
+                .orElseGet(() -> {
+                    MirroredEvent created = new MirroredEvent();
+                    created.setUserId(userId);
+                    created.setCalendarId(calendarId);
+                    return created;
+                });
+        if (mirroredEvent.getId() != null) {
+            changed.include(mirroredEvent.getStartTime(), mirroredEvent.getEndTime());
+        }
+        copy(event, mirroredEvent);
+        changed.include(mirroredEvent.getStartTime(), mirroredEvent.getEndTime());
+        mirroredEventRepository.save(mirroredEvent);
+    }
+
+    private boolean hasTimeRange(Event event) {
+        return event.getStart() != null && event.getEnd() != null
+                && (event.getStart().getDateTime() != null || event.getStart().getDate() != null)
+                && (event.getEnd().getDateTime() != null || event.getEnd().getDate() != null);
+    }
+
+    private void copy(Event event, MirroredEvent mirroredEvent) {
+        DateTime start = event.getStart().getDateTime();
+        DateTime end = event.getEnd().getDateTime();
+        boolean allDay = start == null;
+        if (allDay) {
+            start = event.getStart().getDate();
+            end = event.getEnd().getDate() != null ? event.getEnd().getDate() : end;
+        }
+
+        mirroredEvent.setEventId(event.getId());
+        mirroredEvent.setICalUid(event.getICalUID());
+        mirroredEvent.setSummary(event.getSummary());
+        mirroredEvent.setDescription(event.getDescription());
+        mirroredEvent.setLocation(event.getLocation());
+        mirroredEvent.setStartTime(start.getValue());
+        mirroredEvent.setEndTime(end.getValue());
+        mirroredEvent.setTimeZoneShift(allDay ? null : start.getTimeZoneShift());
+        mirroredEvent.setAllDay(allDay);
+    }
+
+    private Event toEvent(MirroredEvent mirroredEvent) {
+        EventDateTime start = new EventDateTime();
+        EventDateTime end = new EventDateTime();
+        if (mirroredEvent.isAllDay()) {
+            start.setDate(new DateTime(true, mirroredEvent.getStartTime(), 0));
+            end.setDate(new DateTime(true, mirroredEvent.getEndTime(), 0));
+        } else {
+            start.setDateTime(new DateTime(false, mirroredEvent.getStartTime(), mirroredEvent.getTimeZoneShift()));
+            end.setDateTime(new DateTime(false, mirroredEvent.getEndTime(), mirroredEvent.getTimeZoneShift()));
+        }
+
+        return new Event()
+                .setId(mirroredEvent.getEventId())
+                .setICalUID(mirroredEvent.getICalUid())
+                .setSummary(mirroredEvent.getSummary())
+                .setDescription(mirroredEvent.getDescription())
+                .setLocation(mirroredEvent.getLocation())
+                .setStart(start)
+                .setEnd(end);
+    }
+
+    private String toPattern(String keyword) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return "%";
+        }
+        String escaped = keyword.trim().toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fullSyncExecutor.shutdownNow();
+    }
+
+    /**
+     * Time span covering the old and new times of the events changed by a sync.
+     */
+    private static class ChangedRange {
+        private long from = Long.MAX_VALUE;
+        private long to = Long.MIN_VALUE;
+
+        private void include(long start, long end) {
+            from = Math.min(from, start);
+            to = Math.max(to, end);
+        }
+
+        private boolean isEmpty() {
+            return from > to;
+        }
+    }
+
+    /**
+     * Reads the mirrored events of a time range in slices of the configured page size.
+     */
+    private class MirrorCursor implements EventCursor {
+        private final String userId;
+        private final String calendarId;
+        private final long from;
+        private final long to;
+        private final String pattern;
+        private Pageable nextSlice;
+        private Iterator<MirroredEvent> current = Collections.emptyIterator();
+
+        private MirrorCursor(String userId, String calendarId, long from, long to, String pattern, int pageSize) {
+            this.userId = userId;
+            this.calendarId = calendarId;
+            this.from = from;
+            this.to = to;
+            this.pattern = pattern;
+            this.nextSlice = PageRequest.of(0, pageSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && nextSlice != null) {
+                Slice<MirroredEvent> slice = mirroredEventRepository.findInRange(userId, calendarId, from, to,
+                        pattern, nextSlice);
+                nextSlice = slice.hasNext() ? slice.nextPageable() : null;
+                current = slice.getContent().iterator();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public Event next() {
+            return toEvent(current.next());
+        }
+
+        @Override
+        public void close() {
+            nextSlice = null;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDate;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+
+/**
+ * Formats found events as text lines: {@code Date = yyyy-MM-dd HH:mm, Duration = h,
+ * Description = summary}.
+ *
+ * Dates are written digit by digit from the epoch milliseconds and the offset the event
+ * was returned with, straight into the caller's builder. No formatter, intermediate
+ * string or parsed date-time is created per event, so rendering thousands of events
+ * costs little more than copying their summaries.
+ */
+public class EventRenderer {
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final String NO_DATE = "0001.01.01";
+
+    private EventRenderer() {}
+
+    /**
+     * Formats one event.
+     *
+     * @param event the event to format.
+     * @return the line of the event.
+     */
+    public static String render(Event event) {
+        StringBuilder line = new StringBuilder(64);
+        appendEvent(line, event);
+        return line.toString();
+    }
+
+    /**
+     * Appends the line of an event. The start of a timed event is shown in the time zone
+     * of the event, the duration in whole hours; an all-day event shows its date and a
+     * duration of 0.
+     *
+     * @param out   the builder to append to.
+     * @param event the event to format.
+     */
+    public static void appendEvent(StringBuilder out, Event event) {
+        DateTime start = event.getStart().getDateTime();
+        DateTime end = event.getEnd().getDateTime();
+        long duration = 0L;
+
+        out.append("Date = ");
+        if (start != null && end != null) {
+            appendDateTime(out, start.getValue(), start.getTimeZoneShift());
+            duration = (end.getValue() - start.getValue()) / MILLIS_PER_HOUR;
+        } else if (start == null && end == null && event.getStart().getDate() != null
+                && event.getEnd().getDate() != null) {
+            appendDate(out, Math.floorDiv(event.getStart().getDate().getValue(), MILLIS_PER_DAY));
+        } else {
+            out.append(NO_DATE);
+        }
+        out.append(", Duration = ").append(duration)
+                .append(", Description = ").append(event.getSummary());
+    }
+
+    /**
+     * Appends a date-time in the {@code yyyy-MM-dd HH:mm} format.
+     *
+     * @param out           the builder to append to.
+     * @param epochMillis   the instant.
+     * @param offsetMinutes the offset from UTC to show the instant in.
+     */
+    static void appendDateTime(StringBuilder out, long epochMillis, int offsetMinutes) {
+        long local = epochMillis + offsetMinutes * MILLIS_PER_MINUTE;
+        appendDate(out, Math.floorDiv(local, MILLIS_PER_DAY));
+        int minuteOfDay = (int) (Math.floorMod(local, MILLIS_PER_DAY) / MILLIS_PER_MINUTE);
+        out.append(' ');
+        appendTwoDigits(out, minuteOfDay / 60);
+        out.append(':');
+        appendTwoDigits(out, minuteOfDay % 60);
+    }
+
+    private static void appendDate(StringBuilder out, long epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year >= 0 && year < 1000) {
+            out.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        }
+        out.append(year).append('-');
+        appendTwoDigits(out, date.getMonthValue());
+        out.append('-');
+        appendTwoDigits(out, date.getDayOfMonth());
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,103 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+
+/**
+ * Streams the events of an {@code events.list} request page by page.
+ *
+ * Pages are requested lazily following {@code nextPageToken}. As soon as a page has
+ * been received, the request for the next one is started on the prefetch executor, so
+ * it is loaded while the caller processes the current page. Only two pages are held in
+ * memory at any time, regardless of the size of the time range.
+ */
+public class EventStream implements EventCursor {
+    private final Calendar.Events.List request;
+    private final Executor prefetchExecutor;
+    private Iterator<Event> currentPage = Collections.emptyIterator();
+    private CompletableFuture<Events> nextPage;
+    private String nextSyncToken;
+
+    /**
+     * Starts loading the first page of the request.
+     *
+     * @param request          the configured list request; its page token is managed by the stream.
+     * @param prefetchExecutor the executor used to load pages in the background.
+     */
+    public EventStream(Calendar.Events.List request, Executor prefetchExecutor) {
+        this.request = request;
+        this.prefetchExecutor = prefetchExecutor;
+        this.nextPage = fetch(null);
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (!currentPage.hasNext() && nextPage != null) {
+            Events events = await(nextPage);
+            String pageToken = events.getNextPageToken();
+            nextPage = pageToken != null ? fetch(pageToken) : null;
+            if (events.getNextSyncToken() != null) {
+                nextSyncToken = events.getNextSyncToken();
+            }
+            List<Event> items = events.getItems();
+            currentPage = items != null ? items.iterator() : Collections.emptyIterator();
+        }
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public Event next() {
+        return currentPage.next();
+    }
+
+    /**
+     * Returns the sync token of the last page, available once the stream is exhausted.
+     *
+     * @return the sync token, or null if the request did not return one.
+     */
+    public String getNextSyncToken() {
+        return nextSyncToken;
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
+        }
+    }
+
+    private CompletableFuture<Events> fetch(String pageToken) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request.setPageToken(pageToken).execute();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, prefetchExecutor);
+    }
+
+    private Events await(CompletableFuture<Events> page) throws IOException {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IOException(e);
+        }
+    }
+}
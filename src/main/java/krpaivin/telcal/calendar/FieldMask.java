@@ -0,0 +1,40 @@
+package krpaivin.telcal.calendar;
+
+/**
+ * Partial response field masks for Google Calendar requests.
+ *
+ * Each operation declares the fields it actually reads, everything else (attendees,
+ * descriptions, conference data, reminders) is neither transferred nor parsed. A field
+ * added to a consumer has to be added to its mask as well, otherwise it stays null.
+ */
+public enum FieldMask {
+    /** Events counted by analytics: time range, title for keyword buckets, iCalUID removes copies across calendars. */
+    ANALYTICS_EVENTS("nextPageToken,nextSyncToken,items(iCalUID,start,end,summary)"),
+    /** Events shown in search results. */
+    SEARCH_EVENTS("nextPageToken,nextSyncToken,items(id,iCalUID,start,end,summary)"),
+    /** Events stored in the {@link EventMirror}, including deleted ones during incremental syncs. */
+    MIRRORED_EVENTS("nextPageToken,nextSyncToken,items(id,iCalUID,status,start,end,summary,description,location)"),
+    /** Response of an event insert, only used to check the result. */
+    CREATED_EVENT("id"),
+    /** Calendar list entry cached as {@link CalendarMetadata}. */
+    CALENDAR_METADATA("etag,id,summary,timeZone,accessRole"),
+    /** Calendar list shown when the user selects a calendar. */
+    CALENDAR_LIST("nextPageToken,items(etag,id,summary,timeZone,accessRole)"),
+    /** Busy intervals of a free/busy query, used to find free time. */
+    FREE_BUSY("calendars(busy,errors)");
+
+    private final String fields;
+
+    FieldMask(String fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Returns the value for the {@code fields} request parameter.
+     *
+     * @return the field mask.
+     */
+    public String getFields() {
+        return fields;
+    }
+}
@@ -1,13 +1,14 @@
 package krpaivin.telcal.calendar;
 
 import com.github.benmanes.caffeine.cache.Cache;
-import com.google.api.client.auth.oauth2.BearerToken;
-import com.google.api.client.auth.oauth2.ClientParametersAuthentication;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.Calendar;
@@ -15,31 +16,48 @@ import com.google.api.services.calendar.CalendarScopes;
 import com.google.api.services.calendar.model.CalendarListEntry;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventDateTime;
-import com.google.api.services.calendar.model.Events;
+import com.google.api.services.calendar.model.FreeBusyCalendar;
+import com.google.api.services.calendar.model.FreeBusyRequest;
+import com.google.api.services.calendar.model.FreeBusyRequestItem;
+import com.google.api.services.calendar.model.FreeBusyResponse;
+import com.google.api.services.calendar.model.TimePeriod;
 import com.google.api.services.calendar.model.CalendarList;
 
 import krpaivin.telcal.config.CalendarData;
 import krpaivin.telcal.config.Constants;
 import krpaivin.telcal.config.CredentialsManager;
 import krpaivin.telcal.config.Messages;
+import krpaivin.telcal.config.TelegramProperties;
 import krpaivin.telcal.config.UserCalendar;
+import krpaivin.telcal.data.KeywordMatcher;
 import krpaivin.telcal.data.UserAuthData;
 import lombok.RequiredArgsConstructor;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
 
 import org.springframework.stereotype.Service;
 
@@ -53,8 +71,32 @@ import org.springframework.stereotype.Service;
 @Service
 public class GoogleCalendarService {
 
+    private static final Logger logger = Logger.getLogger(GoogleCalendarService.class.getName());
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final String ACCESS_ROLE_FREE_BUSY_READER = "freeBusyReader";
+    private static final String ACCESS_ROLE_OWNER = "owner";
+    private static final String ACCESS_ROLE_WRITER = "writer";
+    private static final int MAX_FREE_BUSY_CALENDARS = 50;
+    private static final int MAX_LISTED_FREE_SLOTS = 30;
+    private static final DateTimeFormatter FREE_SLOT_DAY_FORMATTER = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd EEE HH:mm", Locale.ENGLISH);
+    private static final DateTimeFormatter FREE_SLOT_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
     private final UserAuthData userAuthData;
     private final Cache<String, UserCalendar> calendarSelectionCache;
+    private final Cache<String, List<String>> userCalendarsCache;
+    private final HttpTransport googleHttpTransport;
+    private final CalendarClientProvider calendarClientProvider;
+    private final CalendarMetadataProvider calendarMetadataProvider;
+    private final EventMirror eventMirror;
+    private final AnalyticsResultCache analyticsResultCache;
+    private final Cache<String, SearchCursor> searchCursorCache;
+    private final CalendarResilience calendarResilience;
+    private final ExecutorService calendarPrefetchExecutor;
+    private final ExecutorService calendarFanOutExecutor;
+    private final ExecutorService analyticsShardExecutor;
+    private final TelegramProperties telegramProperties;
+    private GoogleAuthorizationCodeFlow flow;
 
     /**
      * Creates a new event in the user's Google Calendar.
@@ -75,25 +117,132 @@ public class GoogleCalendarService {
             LocalDateTime startDateTime, LocalDateTime endDateTime, String userId)
             throws GeneralSecurityException, IOException {
 
-        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+        Map<String, String> mapCredentials = Optional.ofNullable(userAuthData.getCredentialFromData(userId))
+                    .orElseThrow(() -> new IllegalStateException(Messages.ERROR_ACCESSING_CALENDAR));
+
+        String calendarId = mapCredentials.get(userId + Constants.BD_FIELD_CALENDAR);
+        Calendar service = calendarClientProvider.getClient(userId, mapCredentials).getService();
+
+        String timeZone = calendarMetadataProvider.get(service, calendarId).timeZone();
+        Event event = buildEvent(new NewEvent(summary, description, startDateTime, endDateTime), timeZone);
+
+        Event created = calendarResilience.insertIdempotently(service.events().insert(calendarId, event)
+                .setFields(FieldMask.CREATED_EVENT.getFields()), event);
+        eventMirror.recordCreated(userId, calendarId, event.setId(created.getId()));
+        analyticsResultCache.invalidate(userId, calendarId, event.getStart().getDateTime().getValue(),
+                event.getEnd().getDateTime().getValue());
+    }
+
+    /**
+     * Creates several events in the user's Google Calendar with a single batch request
+     * per 50 events. A failure of one event or of one batch request does not affect the
+     * others.
+     *
+     * @param events the events to create.
+     * @param userId the ID of the user for whom the events are created.
+     * @return the result for every event, in the order of the events.
+     * @throws GeneralSecurityException if there is a security issue accessing
+     *                                  Google APIs.
+     * @throws IOException              if the calendar cannot be accessed.
+     * @throws IllegalStateException    if user credentials or calendar information
+     *                                  are not available.
+     */
+    public List<InsertResult> createGoogleCalendarEvents(List<NewEvent> events, String userId)
+            throws GeneralSecurityException, IOException {
 
         Map<String, String> mapCredentials = Optional.ofNullable(userAuthData.getCredentialFromData(userId))
                     .orElseThrow(() -> new IllegalStateException(Messages.ERROR_ACCESSING_CALENDAR));
 
         String calendarId = mapCredentials.get(userId + Constants.BD_FIELD_CALENDAR);
-        Credential credential = getCredentialWithToken(userId, httpTransport, mapCredentials);
+        Calendar service = calendarClientProvider.getClient(userId, mapCredentials).getService();
+        String timeZone = calendarMetadataProvider.get(service, calendarId).timeZone();
 
-        Calendar service = new Calendar.Builder(httpTransport, Constants.JSON_FACTORY, credential)
-                .setApplicationName(Constants.APPLICATION_NAME)
-                .build();
+        InsertResult[] results = new InsertResult[events.size()];
+        try {
+            // Google accepts up to 50 calls in one batch
+            for (int from = 0; from < events.size(); from += MAX_BATCH_SIZE) {
+                int to = Math.min(from + MAX_BATCH_SIZE, events.size());
+                try {
+                    executeBatch(service, calendarId, userId, timeZone, events, from, to, results);
+                } catch (IOException e) {
+                    // The events of the other parts are created or reported separately
+                    logger.warning("Error creating events of user " + userId + ": " + e.getMessage());
+                    for (int i = from; i < to; i++) {
+                        if (results[i] == null) {
+                            results[i] = new InsertResult(events.get(i), e.getMessage());
+                        }
+                    }
+                }
+            }
+        } finally {
+            long from = Long.MAX_VALUE;
+            long to = Long.MIN_VALUE;
+            for (NewEvent newEvent : events) {
+                from = Math.min(from, newEvent.startDateTime().atZone(ZoneId.of(timeZone)).toInstant().toEpochMilli());
+                to = Math.max(to, newEvent.endDateTime().atZone(ZoneId.of(timeZone)).toInstant().toEpochMilli());
+            }
+            analyticsResultCache.invalidate(userId, calendarId, from, to);
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                // The callback of the part never ran
+                results[i] = new InsertResult(events.get(i), Messages.ERROR_CREATING_EVENT);
+            }
+        }
+        return Arrays.asList(results);
+    }
 
-        Event event = new Event().setSummary(summary).setDescription(description);
+    /**
+     * Creates the events from {@code from} to {@code to} (exclusive) with one batch request
+     * and stores the result of every event whose response arrived.
+     */
+    private void executeBatch(Calendar service, String calendarId, String userId, String timeZone,
+            List<NewEvent> events, int from, int to, InsertResult[] results) throws IOException {
+        BatchRequest batch = service.batch();
+        for (int i = from; i < to; i++) {
+            int index = i;
+            NewEvent newEvent = events.get(i);
+            Event event = buildEvent(newEvent, timeZone);
+
+            service.events().insert(calendarId, event)
+                    .setFields(FieldMask.CREATED_EVENT.getFields())
+                    .queue(batch, new JsonBatchCallback<Event>() {
+                        @Override
+                        public void onSuccess(Event created, HttpHeaders responseHeaders) {
+                            results[index] = new InsertResult(newEvent, null);
+                            eventMirror.recordCreated(userId, calendarId, event.setId(created.getId()));
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                            if (calendarResilience.isDuplicateInsert(error.getCode())) {
+                                // Stored by an earlier attempt of the batch
+                                onSuccess(event, responseHeaders);
+                            } else {
+                                results[index] = new InsertResult(newEvent, error.getMessage());
+                            }
+                        }
+                    });
+        }
+        batch.execute();
+    }
 
-        com.google.api.services.calendar.model.Calendar calendar = service.calendars().get(calendarId).execute();
-        String timeZone = calendar.getTimeZone();
+    /**
+     * Builds the Google Calendar event for the specified time zone. The event ID is
+     * generated here, so that a retried insert cannot create the event twice.
+     *
+     * @param newEvent the event to create.
+     * @param timeZone the time zone of the calendar.
+     * @return the event ready to be inserted.
+     */
+    private Event buildEvent(NewEvent newEvent, String timeZone) {
+        Event event = new Event()
+                .setId(UUID.randomUUID().toString().replace("-", ""))
+                .setSummary(newEvent.summary())
+                .setDescription(newEvent.description());
 
-        ZonedDateTime zonedStart = startDateTime.atZone(ZoneId.of(timeZone));
-        ZonedDateTime zonedEnd = endDateTime.atZone(ZoneId.of(timeZone));
+        ZonedDateTime zonedStart = newEvent.startDateTime().atZone(ZoneId.of(timeZone));
+        ZonedDateTime zonedEnd = newEvent.endDateTime().atZone(ZoneId.of(timeZone));
 
         EventDateTime start = new EventDateTime()
                 .setDateTime(new com.google.api.client.util.DateTime(zonedStart.toInstant().toString()))
@@ -105,241 +254,533 @@ public class GoogleCalendarService {
                 .setTimeZone(timeZone);
         event.setEnd(end);
 
-        service.events().insert(calendarId, event).execute();
-    }
-
-    /**
-     * Retrieves a {@link Credential} object for a user, initializing it with an
-     * access token, refresh token, and expiration time. If the access token is expired 
-     * or unavailable, the method refreshes the token.
-     *
-     * @param userId         the unique identifier of the user.
-     * @param httpTransport  the {@link NetHttpTransport} instance used for network
-     *                       communication.
-     * @param mapCredentials a map containing user credentials, including access
-     *                       token, refresh token,
-     *                       and token expiration time.
-     * @return a {@link Credential} object initialized with the user's credentials.
-     * @throws IOException if an error occurs while refreshing the token or
-     *                     accessing credentials.
-     */
-    private Credential getCredentialWithToken(String userId, final NetHttpTransport httpTransport,
-            Map<String, String> mapCredentials) throws IOException {
-
-        String accessToken = mapCredentials.get(userId + Constants.BD_FIELD_ACCESS_TOKEN);
-        String refreshToken = mapCredentials.get(userId + Constants.BD_FIELD_REFRESH_TOKEN);
-        long expirationTime = Long.parseLong(mapCredentials.get(userId + Constants.BD_FIELD_EXP_TIME_TOKEN));
-
-        String clientId = CredentialsManager.getClientId();
-        String clientSecret = CredentialsManager.getClientSecret();
-
-        Credential credential = new Credential.Builder(BearerToken.authorizationHeaderAccessMethod())
-                .setJsonFactory(Constants.JSON_FACTORY)
-                .setTransport(httpTransport)
-                .setClientAuthentication(new ClientParametersAuthentication(clientId, clientSecret))
-                .setTokenServerEncodedUrl(Constants.OAUTH_PATH_TOKEN)
-                .build()
-                .setAccessToken(accessToken)
-                .setRefreshToken(refreshToken)
-                .setExpirationTimeMilliseconds(expirationTime);
-
-        if (credential.getAccessToken() == null || credential.getExpiresInSeconds() <= 0) {
-            credential.refreshToken();
-            userAuthData.saveTokens(userId, credential);
-        }
-        return credential;
+        return event;
     }
 
     /**
      * Retrieves analytics of events based on a keyword within a specified date-time
      * range.
      *
+     * The range is split into month shards that are fetched in parallel, so a report
+     * over years takes about as long as one month. Each shard is aggregated in a single
+     * pass over its events and the aggregators of past months are cached. An event is
+     * counted in the month in which it starts.
+     *
      * @param startDateTime the start of the time range.
-     * @param endDateTime   the end of the time range.
+     * @param endDateTime   the end of the time range, the last minute included.
      * @param keyword       the keyword to search for in events.
      * @param userId        the ID of the user whose calendar is analyzed.
-     * @return a string containing the number of events and the total duration (in
-     *         hours).
+     * @return the totals and breakdowns of the events, see {@link AnalyticsReport}.
      * @throws GeneralSecurityException if there is a security issue accessing
      *                                  Google APIs.
      * @throws IOException              if there is an issue communicating with
      *                                  Google APIs.
      */
-    public String analyticsEventsByKeyword(LocalDateTime startDateTime, LocalDateTime endDateTime,
+    public AnalyticsReport analyticsEventsByKeyword(LocalDateTime startDateTime, LocalDateTime endDateTime,
             String keyword, String userId) throws GeneralSecurityException, IOException {
 
-        DateTime start = new DateTime(startDateTime.toString() + ":00Z");
-        DateTime end = new DateTime(endDateTime.toString() + ":59Z");
-
-        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
         Map<String, String> mapCredentials = Optional.ofNullable(userAuthData.getCredentialFromData(userId))
                     .orElseThrow(() -> new IllegalStateException(Messages.ERROR_ACCESSING_CALENDAR));
 
         String calendarId = mapCredentials.get(userId + Constants.BD_FIELD_CALENDAR);
-        Credential credential = getCredentialWithToken(userId, httpTransport, mapCredentials);
+        String calendarKey = userAuthData.isAllCalendarsMode(userId) ? AnalyticsKey.ALL_CALENDARS : calendarId;
+        KeywordMatcher keywordMatcher = userAuthData.getKeywordMatcher(userId);
+        List<String> keywords = keywordMatcher.getKeywords();
+        Calendar service = calendarClientProvider.getClient(userId, mapCredentials).getService();
+        ZoneId zone = ZoneId.of(calendarMetadataProvider.get(service, calendarId).timeZone());
+
+        AnalyticsKey key = AnalyticsKey.of(userId, calendarKey, startDateTime, endDateTime, keyword);
+        AnalyticsReport cached = analyticsResultCache.getIfPresent(key);
+        if (cached != null && cached.hasKeywords(keywords) && cached.zone().equals(zone)) {
+            return cached;
+        }
+        long generation = analyticsResultCache.generation(userId);
 
-        Calendar service = new Calendar.Builder(httpTransport, Constants.JSON_FACTORY, credential)
-                .setApplicationName(Constants.APPLICATION_NAME)
-                .build();
+        List<AnalyticsShard> shards = AnalyticsShard.split(startDateTime, endDateTime.plusMinutes(1));
+        List<EventAggregator> aggregators = fetchShards(userId, service, calendarId, calendarKey, shards, keyword,
+                keywordMatcher, zone, generation);
 
-        // Get eventst list
-        Calendar.Events.List request = service.events().list(calendarId)
-                .setTimeMin(start)
-                .setTimeMax(end)
-                .setSingleEvents(true)
-                .setOrderBy("startTime");
+        AnalyticsReport report = AnalyticsReport.combine(shards, aggregators, keywords, zone);
+        analyticsResultCache.put(key, report, generation);
+        return report;
+    }
 
-        // Add filtr keyword if it exist
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            request.setQ(keyword);
+    /**
+     * Aggregates every shard, taking past months from the cache and fetching the others
+     * in parallel on the shard executor.
+     *
+     * @param userId      the ID of the user.
+     * @param service     the Calendar client of the user.
+     * @param calendarId  the ID of the selected calendar.
+     * @param calendarKey the calendar part of the cache key.
+     * @param shards      the shards of the time range.
+     * @param keyword     the keyword to filter events by, may be null.
+     * @param keywordMatcher the matcher of the keywords to bucket events by.
+     * @param zone        the time zone of the calendar, in which days are counted.
+     * @param generation  the cache generation of the user read before fetching.
+     * @return the completed aggregators in the order of the shards.
+     * @throws IOException if a shard cannot be fetched.
+     */
+    private List<EventAggregator> fetchShards(String userId, Calendar service, String calendarId,
+            String calendarKey, List<AnalyticsShard> shards, String keyword, KeywordMatcher keywordMatcher,
+            ZoneId zone, long generation) throws IOException {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        List<CompletableFuture<EventAggregator>> fetching = new ArrayList<>();
+        for (AnalyticsShard shard : shards) {
+            AnalyticsKey shardKey = AnalyticsKey.of(userId, calendarKey, shard.start(), shard.end(), keyword);
+            EventAggregator cached = analyticsResultCache.getShard(shardKey);
+            if (cached != null && cached.hasKeywords(keywordMatcher.getKeywords()) && cached.getZone().equals(zone)) {
+                fetching.add(CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            fetching.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    EventAggregator aggregator = aggregateShard(userId, service, calendarId, shard, keyword,
+                            keywordMatcher, zone);
+                    if (shard.isHistorical(now)) {
+                        analyticsResultCache.putShard(shardKey, aggregator, generation);
+                    }
+                    return aggregator;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, analyticsShardExecutor));
         }
 
-        Events events = request.execute();
-        List<Event> items = events.getItems();
-        int eventCount = items.size();
-        long totalDuration = 0;
-
-        // Calculate the duration of all events
-        for (Event event : items) {
-            DateTime startEvent = event.getStart().getDateTime();
-            DateTime endEvent = event.getEnd().getDateTime();
-
-            if (startEvent == null) {
-                startEvent = event.getStart().getDate();
+        List<EventAggregator> aggregators = new ArrayList<>();
+        try {
+            for (CompletableFuture<EventAggregator> future : fetching) {
+                aggregators.add(future.join());
             }
-            if (endEvent == null) {
-                endEvent = event.getEnd().getDate();
+        } catch (CompletionException e) {
+            fetching.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
             }
+            throw new IOException(e.getCause());
+        }
+        return aggregators;
+    }
+
+    /**
+     * Aggregates the events starting within the shard in one pass.
+     *
+     * @param userId     the ID of the user.
+     * @param service    the Calendar client of the user.
+     * @param calendarId the ID of the selected calendar.
+     * @param shard      the shard to aggregate.
+     * @param keyword    the keyword to filter events by, may be null.
+     * @param keywordMatcher the matcher of the keywords to bucket events by.
+     * @param zone       the time zone of the calendar, in which days are counted.
+     * @return the completed aggregator of the shard.
+     * @throws IOException if there is an issue communicating with Google APIs.
+     */
+    private EventAggregator aggregateShard(String userId, Calendar service, String calendarId,
+            AnalyticsShard shard, String keyword, KeywordMatcher keywordMatcher, ZoneId zone) throws IOException {
+        long shardStart = shard.start().toInstant(ZoneOffset.UTC).toEpochMilli();
+        long shardEnd = shard.end().toInstant(ZoneOffset.UTC).toEpochMilli();
+        EventAggregator aggregator = new EventAggregator(shard.start(), shard.end(), zone, keywordMatcher);
+
+        try (EventCursor events = openUserEvents(userId, service, calendarId, new DateTime(shardStart),
+                new DateTime(shardEnd), keyword, FieldMask.ANALYTICS_EVENTS)) {
+            while (events.hasNext()) {
+                Event event = events.next();
+
+                DateTime startEvent = event.getStart().getDateTime();
+                DateTime endEvent = event.getEnd().getDateTime();
+
+                if (startEvent == null) {
+                    startEvent = event.getStart().getDate();
+                }
+                if (endEvent == null) {
+                    endEvent = event.getEnd().getDate();
+                }
 
-            if (startEvent != null && endEvent != null) {
-                long eventDuration = (endEvent.getValue() - startEvent.getValue()) / (1000 * 60 * 60);
-                totalDuration += eventDuration;
+                // Events overlapping the shard start belong to the previous shard
+                if (startEvent == null || endEvent == null || startEvent.getValue() < shardStart) {
+                    continue;
+                }
+                aggregator.add(startEvent.getValue(), endEvent.getValue(), event.getSummary());
             }
         }
-
-        return "Amount events: " + eventCount + ".\n" + "All time (hours): " + totalDuration;
+        return aggregator;
     }
 
     /**
      * Searches for events in the user's Google Calendar based on a keyword and time
      * range.
      *
+     * All events are returned page by page: the first page is formatted as soon as its
+     * events have arrived, and the open cursor is kept for a short time so that the
+     * next pages are fetched only when the user asks for them, see
+     * {@link #getSearchPage}.
+     *
      * @param startDateTime the start of the time range.
      * @param endDateTime   the end of the time range.
      * @param keyword       the keyword to search for in events.
      * @param searchType    the type of search: first event, last event, or all
      *                      events.
      * @param userId        the ID of the user whose calendar is searched.
-     * @return a formatted string containing details of the found events or a
-     *         message if no events are found.
+     * @return the first page of the found events or a message if no events are found.
      * @throws GeneralSecurityException if there is a security issue accessing
      *                                  Google APIs.
      * @throws IOException              if there is an issue communicating with
      *                                  Google APIs.
      */
-    public String searchEventInCalendar(LocalDateTime startDateTime, LocalDateTime endDateTime,
+    public SearchPage searchEventInCalendar(LocalDateTime startDateTime, LocalDateTime endDateTime,
             String keyword, SearchType searchType, String userId) throws GeneralSecurityException, IOException {
         DateTime start = new DateTime(startDateTime.toString() + ":00Z");
         DateTime end = new DateTime(endDateTime.toString() + ":59Z");
         String result = "Events found: \n";
 
-        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
         Map<String, String> mapCredentials = Optional.ofNullable(userAuthData.getCredentialFromData(userId))
                 .orElseThrow(() -> new IllegalStateException(Messages.ERROR_ACCESSING_CALENDAR));
 
         String calendarId = mapCredentials.get(userId + Constants.BD_FIELD_CALENDAR);
-        Credential credential = getCredentialWithToken(userId, httpTransport, mapCredentials);
-
-        Calendar service = new Calendar.Builder(httpTransport, Constants.JSON_FACTORY, credential)
-                .setApplicationName(Constants.APPLICATION_NAME)
-                .build();
-
-        // Get eventst list
-        Calendar.Events.List request = service.events().list(calendarId)
-                .setTimeMin(start)
-                .setTimeMax(end)
-                .setOrderBy("startTime")
-                .setSingleEvents(true);
-
-        // Add filtr keyword if it exist
-        if (keyword != null && !keyword.trim().isEmpty()) {
-            request.setQ(keyword);
-        }
+        Calendar service = calendarClientProvider.getClient(userId, mapCredentials).getService();
 
-        Events events = request.execute();
-        List<Event> items = events.getItems();
+        EventCursor events = openUserEvents(userId, service, calendarId, start, end, keyword,
+                FieldMask.SEARCH_EVENTS);
+        boolean keptOpen = false;
+        try {
+            if (!events.hasNext()) {
+                return SearchPage.single("Events not found");
+            }
 
-        if (items.isEmpty()) {
-            result = "Events not found";
-        } else {
             switch (searchType) {
                 case FIRST:
-                    Event firstEvent = items.get(0);
-                    result = result + formatEvent(firstEvent);
+                    // The rest of the pages is not needed
+                    result = result + EventRenderer.render(events.next());
                     break;
                 case LAST:
-                    Event lastEvent = items.get(items.size() - 1);
-                    result = result + formatEvent(lastEvent);
+                    Event lastEvent = null;
+                    while (events.hasNext()) {
+                        lastEvent = events.next();
+                    }
+                    result = result + EventRenderer.render(lastEvent);
                     break;
                 case ALL:
-                    String eventsString = items.stream()
-                            .map(this::formatEvent)
-                            .collect(Collectors.joining("\n"));
-                    result = result + eventsString;
-                    break;
+                    SearchPage first = openSearchCursor(userId, events);
+                    keptOpen = first.hasNext();
+                    return first;
                 default:
                     result = "Invalid search type";
             }
+        } finally {
+            if (!keptOpen) {
+                events.close();
+            }
         }
 
-        return result;
+        return SearchPage.single(result);
     }
 
     /**
-     * Formats an event object into a string containing its start date, duration,
-     * and description.
+     * Reads the first page of the events and keeps the cursor if there are more.
      *
-     * @param event the Google Calendar {@link Event} to format.
-     * @return a formatted string with the event's date, duration in hours, and
-     *         description.
-     *         If the event is all-day, the date will reflect that. If no start date
-     *         is available,
-     *         a default date of "0001-01-01" is used.
+     * @param userId the ID of the user who searches.
+     * @param events the found events, positioned before the first one.
+     * @return the first page; it has a next page only if the cursor has been kept.
+     * @throws IOException if the events cannot be loaded.
      */
-    private String formatEvent(Event event) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private SearchPage openSearchCursor(String userId, EventCursor events) throws IOException {
+        SearchCursor cursor = new SearchCursor(UUID.randomUUID().toString().replace("-", ""), userId, events,
+                telegramProperties.getSearchPageSize());
+        SearchPage first = cursor.page(0);
+        if (!first.hasNext()) {
+            return SearchPage.single(first.text());
+        }
+        searchCursorCache.put(cursor.getId(), cursor);
+        return first;
+    }
 
-        DateTime startEvent = event.getStart().getDateTime();
-        DateTime endEvent = event.getEnd().getDateTime();
-        DateTime startEventAllDay = null;
-        DateTime endEventAllDay = null;
+    /**
+     * Returns another page of a search started by {@link #searchEventInCalendar}.
+     *
+     * @param cursorId the ID of the search cursor.
+     * @param index    the index of the page.
+     * @param userId   the ID of the user asking for the page.
+     * @return the page, or null if the search has expired, belongs to another user or
+     *         has no such page.
+     * @throws IOException if the events cannot be loaded.
+     */
+    public SearchPage getSearchPage(String cursorId, int index, String userId) throws IOException {
+        SearchCursor cursor = searchCursorCache.getIfPresent(cursorId);
+        if (cursor == null || !cursor.getUserId().equals(userId)) {
+            return null;
+        }
+        try {
+            return cursor.page(index);
+        } catch (IOException e) {
+            searchCursorCache.invalidate(cursorId);
+            throw e;
+        }
+    }
+
+    /**
+     * Finds free time in the user's calendars within a time range. Only the busy
+     * intervals are requested (freebusy query), so no events are downloaded.
+     *
+     * The calendars the user owns or can edit are considered, together with the selected
+     * calendar. Free time is limited to the configured working hours in the time zone of
+     * the selected calendar and never starts in the past.
+     *
+     * @param startDateTime the start of the time range.
+     * @param endDateTime   the end of the time range.
+     * @param minMinutes    the shortest free slot to report, in minutes.
+     * @param userId        the ID of the user.
+     * @return a formatted list of free slots or a message if there is no free time.
+     * @throws GeneralSecurityException if there is a security issue accessing
+     *                                  Google APIs.
+     * @throws IOException              if there is an issue communicating with
+     *                                  Google APIs.
+     */
+    public String findFreeTime(LocalDateTime startDateTime, LocalDateTime endDateTime, int minMinutes,
+            String userId) throws GeneralSecurityException, IOException {
+
+        Map<String, String> mapCredentials = Optional.ofNullable(userAuthData.getCredentialFromData(userId))
+                .orElseThrow(() -> new IllegalStateException(Messages.ERROR_ACCESSING_CALENDAR));
+
+        String calendarId = mapCredentials.get(userId + Constants.BD_FIELD_CALENDAR);
+        Calendar service = calendarClientProvider.getClient(userId, mapCredentials).getService();
+        ZoneId zone = ZoneId.of(calendarMetadataProvider.get(service, calendarId).timeZone());
 
-        if (startEvent == null) {
-            startEventAllDay = event.getStart().getDate();
+        ZonedDateTime from = startDateTime.atZone(zone);
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        if (from.isBefore(now)) {
+            from = now;
+        }
+        ZonedDateTime to = endDateTime.atZone(zone);
+        ZonedDateTime maxTo = from.plusDays(telegramProperties.getFreeTimeMaxDays());
+        if (to.isAfter(maxTo)) {
+            to = maxTo;
+        }
+        if (!from.isBefore(to)) {
+            return Messages.NO_FREE_TIME;
         }
 
-        if (endEvent == null) {
-            endEventAllDay = event.getEnd().getDate();
+        List<TimeSlot> busy = queryBusy(service, getOwnCalendarIds(service, calendarId), from, to, zone);
+        List<TimeSlot> free = AvailabilityFinder.findFreeSlots(busy, from, to, zone,
+                LocalTime.parse(telegramProperties.getWorkingHoursStart()),
+                LocalTime.parse(telegramProperties.getWorkingHoursEnd()),
+                telegramProperties.isWorkingDaysOnly(),
+                Duration.ofMinutes(minMinutes));
+
+        return formatFreeSlots(free);
+    }
+
+    /**
+     * Returns the IDs of the calendars the user owns or can edit, and the selected one.
+     *
+     * @param service    the Calendar client of the user.
+     * @param calendarId the ID of the selected calendar.
+     * @return the calendar IDs.
+     * @throws IOException if the calendar list cannot be loaded.
+     */
+    private List<String> getOwnCalendarIds(Calendar service, String calendarId) throws IOException {
+        List<String> ids = new ArrayList<>();
+        ids.add(calendarId);
+        for (CalendarListEntry entry : listCalendars(service)) {
+            boolean own = ACCESS_ROLE_OWNER.equals(entry.getAccessRole())
+                    || ACCESS_ROLE_WRITER.equals(entry.getAccessRole());
+            if (own && !entry.getId().equals(calendarId)) {
+                ids.add(entry.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Requests the busy intervals of the calendars. Google answers up to 50 calendars
+     * per query. A calendar that cannot be read is skipped.
+     *
+     * @param service     the Calendar client of the user.
+     * @param calendarIds the IDs of the calendars.
+     * @param from        the start of the time range.
+     * @param to          the end of the time range.
+     * @param zone        the time zone to convert the intervals to.
+     * @return the busy intervals of all calendars, unsorted.
+     * @throws IOException if there is an issue communicating with Google APIs.
+     */
+    private List<TimeSlot> queryBusy(Calendar service, List<String> calendarIds, ZonedDateTime from,
+            ZonedDateTime to, ZoneId zone) throws IOException {
+        List<TimeSlot> busy = new ArrayList<>();
+        for (int first = 0; first < calendarIds.size(); first += MAX_FREE_BUSY_CALENDARS) {
+            List<FreeBusyRequestItem> items = calendarIds
+                    .subList(first, Math.min(first + MAX_FREE_BUSY_CALENDARS, calendarIds.size()))
+                    .stream()
+                    .map(id -> new FreeBusyRequestItem().setId(id))
+                    .toList();
+            FreeBusyRequest request = new FreeBusyRequest()
+                    .setTimeMin(new DateTime(from.toInstant().toEpochMilli()))
+                    .setTimeMax(new DateTime(to.toInstant().toEpochMilli()))
+                    .setItems(items);
+
+            FreeBusyResponse response = service.freebusy().query(request)
+                    .setFields(FieldMask.FREE_BUSY.getFields())
+                    .execute();
+            for (Entry<String, FreeBusyCalendar> calendar : response.getCalendars().entrySet()) {
+                if (calendar.getValue().getErrors() != null && !calendar.getValue().getErrors().isEmpty()) {
+                    logger.warning("Skipping free/busy of calendar " + calendar.getKey() + ": "
+                            + calendar.getValue().getErrors().get(0).getReason());
+                    continue;
+                }
+                if (calendar.getValue().getBusy() == null) {
+                    continue;
+                }
+                for (TimePeriod period : calendar.getValue().getBusy()) {
+                    busy.add(new TimeSlot(
+                            ZonedDateTime.ofInstant(Instant.ofEpochMilli(period.getStart().getValue()), zone),
+                            ZonedDateTime.ofInstant(Instant.ofEpochMilli(period.getEnd().getValue()), zone)));
+                }
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Formats the free slots, one per line.
+     *
+     * @param free the free slots.
+     * @return the formatted list or a message if there are no slots.
+     */
+    private String formatFreeSlots(List<TimeSlot> free) {
+        if (free.isEmpty()) {
+            return Messages.NO_FREE_TIME;
+        }
+        StringBuilder res = new StringBuilder(Messages.FREE_TIME);
+        for (TimeSlot slot : free.subList(0, Math.min(free.size(), MAX_LISTED_FREE_SLOTS))) {
+            res.append('\n')
+                    .append(slot.start().format(FREE_SLOT_DAY_FORMATTER))
+                    .append(" - ")
+                    .append(slot.end().format(FREE_SLOT_TIME_FORMATTER))
+                    .append(" (")
+                    .append(String.format(Locale.ENGLISH, "%.1f", slot.duration().toMinutes() / 60.0))
+                    .append(" h)");
+        }
+        if (free.size() > MAX_LISTED_FREE_SLOTS) {
+            res.append("\n... and ").append(free.size() - MAX_LISTED_FREE_SLOTS).append(" more");
         }
+        return res.toString();
+    }
 
-        String start = "0001.01.01";
-        long eventDuration = 0L;
+    /**
+     * Opens a cursor over the events of the user within the time range: the events of
+     * the selected calendar or, in the all calendars mode, the events of every calendar
+     * the user can read, merged by start time.
+     *
+     * In the all calendars mode the calendars are queried in parallel on the fan-out
+     * executor, each query waits for its first page, so opening takes about as long as
+     * the slowest calendar. A calendar that cannot be read is skipped.
+     *
+     * @param userId     the ID of the user.
+     * @param service    the Calendar client of the user.
+     * @param calendarId the ID of the selected calendar.
+     * @param start      the start of the time range.
+     * @param end        the end of the time range.
+     * @param keyword    the keyword to filter events by, may be null.
+     * @param fieldMask  the fields read by the consumer of the cursor.
+     * @return the cursor, to be closed after use.
+     * @throws IOException if the events cannot be requested.
+     */
+    private EventCursor openUserEvents(String userId, Calendar service, String calendarId, DateTime start,
+            DateTime end, String keyword, FieldMask fieldMask) throws IOException {
+        if (!userAuthData.isAllCalendarsMode(userId)) {
+            return openEvents(userId, service, calendarId, start, end, keyword, fieldMask);
+        }
 
-        if (startEvent != null && endEvent != null) {
-            LocalDateTime localstartEvent = OffsetDateTime.parse(startEvent.toStringRfc3339()).toLocalDateTime();
-            start = localstartEvent.format(formatter);
+        List<CompletableFuture<EventCursor>> opening = new ArrayList<>();
+        for (String id : getReadableCalendarIds(userId, service)) {
+            opening.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    EventCursor cursor = openEvents(userId, service, id, start, end, keyword, fieldMask);
+                    cursor.hasNext();
+                    return cursor;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, calendarFanOutExecutor));
+        }
 
-            if (startEvent != null && endEvent != null) {
-                eventDuration = (endEvent.getValue() - startEvent.getValue()) / (1000 * 60 * 60);
+        List<EventCursor> cursors = new ArrayList<>();
+        IOException lastError = null;
+        for (CompletableFuture<EventCursor> future : opening) {
+            try {
+                cursors.add(future.join());
+            } catch (CompletionException e) {
+                lastError = e.getCause() instanceof UncheckedIOException unchecked
+                        ? unchecked.getCause()
+                        : new IOException(e.getCause());
+                logger.warning("Skipping a calendar of user " + userId + ": " + lastError.getMessage());
             }
-        } else if (startEventAllDay != null && endEventAllDay != null) {
-            start = startEventAllDay.toString();
         }
+        if (cursors.isEmpty() && lastError != null) {
+            throw lastError;
+        }
+        return new MergedEventCursor(cursors);
+    }
 
-        return String.format("Date = %s, Duration = %d, Description = %s", start, eventDuration,
-                event.getSummary());
+    /**
+     * Returns the IDs of all calendars whose events the user can read. The list is cached.
+     *
+     * @param userId  the ID of the user.
+     * @param service the Calendar client of the user.
+     * @return the calendar IDs.
+     * @throws IOException if the calendar list cannot be loaded.
+     */
+    private List<String> getReadableCalendarIds(String userId, Calendar service) throws IOException {
+        try {
+            return userCalendarsCache.get(userId, id -> {
+                try {
+                    return listCalendars(service).stream()
+                            .filter(entry -> !ACCESS_ROLE_FREE_BUSY_READER.equals(entry.getAccessRole()))
+                            .map(CalendarListEntry::getId)
+                            .toList();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Opens a cursor over all events of the calendar within the time range, ordered by
+     * start time. The events are read from the {@link EventMirror} if it is up to date,
+     * otherwise from Google page by page with the configured page size.
+     *
+     * @param userId     the ID of the user.
+     * @param service    the Calendar client of the user.
+     * @param calendarId the ID of the calendar.
+     * @param start      the start of the time range.
+     * @param end        the end of the time range.
+     * @param keyword    the keyword to filter events by, may be null.
+     * @param fieldMask  the fields read by the consumer of the stream.
+     * @return the cursor, to be closed after use.
+     * @throws IOException if the request cannot be created.
+     */
+    private EventCursor openEvents(String userId, Calendar service, String calendarId, DateTime start,
+            DateTime end, String keyword, FieldMask fieldMask) throws IOException {
+        Optional<EventCursor> mirrored = eventMirror.query(userId, calendarId, service, start, end, keyword);
+        if (mirrored.isPresent()) {
+            return mirrored.get();
+        }
+
+        Calendar.Events.List request = service.events().list(calendarId)
+                .setFields(fieldMask.getFields())
+                .setTimeMin(start)
+                .setTimeMax(end)
+                .setSingleEvents(true)
+                .setOrderBy("startTime")
+                .setMaxResults(telegramProperties.getCalendarPageSize());
+
+        // Add filtr keyword if it exist
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            request.setQ(keyword);
+        }
+
+        return new EventStream(request, calendarPrefetchExecutor);
     }
 
     /**
@@ -360,52 +801,73 @@ public class GoogleCalendarService {
 
     /**
      * Retrieves a pre-configured GoogleAuthorizationCodeFlow instance for managing
-     * user authorization.
+     * user authorization. The flow is created once and uses the shared transport.
      *
      * @return the GoogleAuthorizationCodeFlow instance.
      */
-    public GoogleAuthorizationCodeFlow getGoogleFlow() {
-        GoogleAuthorizationCodeFlow flow = null;
-
-        String clientId = CredentialsManager.getClientId();
-        String clientSecret = CredentialsManager.getClientSecret();
-
-        flow = new GoogleAuthorizationCodeFlow.Builder(
-                new NetHttpTransport(),
-                JacksonFactory.getDefaultInstance(),
-                clientId,
-                clientSecret,
-                Collections.singletonList(CalendarScopes.CALENDAR))
-                .setAccessType("offline")
-                .build();
+    public synchronized GoogleAuthorizationCodeFlow getGoogleFlow() {
+        if (flow == null) {
+            String clientId = CredentialsManager.getClientId();
+            String clientSecret = CredentialsManager.getClientSecret();
+
+            flow = new GoogleAuthorizationCodeFlow.Builder(
+                    googleHttpTransport,
+                    JacksonFactory.getDefaultInstance(),
+                    clientId,
+                    clientSecret,
+                    Collections.singletonList(CalendarScopes.CALENDAR))
+                    .setAccessType("offline")
+                    .build();
+        }
         return flow;
     }
 
     /**
-     * Retrieves all calendars associated with the user's Google account.
+     * Retrieves all calendars associated with the user's Google account and stores
+     * their metadata for later calendar operations.
      *
      * @param credential the user's Google API credentials.
      * @return a map where keys are calendar IDs and values are calendar names.
      */
     public Map<String, String> getAllCalendar(Credential credential) {
         Map<String, String> calendars = new HashMap<>();
-        NetHttpTransport httpTransport;
         try {
-            httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            Calendar service = new Calendar.Builder(httpTransport, Constants.JSON_FACTORY, credential)
-                    .setApplicationName(Constants.APPLICATION_NAME)
-                    .build();
+            Calendar service = calendarClientProvider.buildService(credential);
 
-            CalendarList calendarList = service.calendarList().list().execute();
-            for (CalendarListEntry entry : calendarList.getItems()) {
+            for (CalendarListEntry entry : listCalendars(service)) {
                 calendars.put(entry.getId(), entry.getSummary());
             }
-        } catch (GeneralSecurityException | IOException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
         return calendars;
     }
 
+    /**
+     * Reads the calendar list of the user page by page and stores the metadata of every
+     * calendar.
+     *
+     * @param service the Calendar client of the user.
+     * @return the entries of the calendar list.
+     * @throws IOException if there is an issue communicating with Google APIs.
+     */
+    private List<CalendarListEntry> listCalendars(Calendar service) throws IOException {
+        List<CalendarListEntry> entries = new ArrayList<>();
+        String pageToken = null;
+        do {
+            CalendarList calendarList = service.calendarList().list()
+                    .setFields(FieldMask.CALENDAR_LIST.getFields())
+                    .setPageToken(pageToken)
+                    .execute();
+            for (CalendarListEntry entry : calendarList.getItems()) {
+                entries.add(entry);
+                calendarMetadataProvider.put(entry);
+            }
+            pageToken = calendarList.getNextPageToken();
+        } while (pageToken != null);
+        return entries;
+    }
+
     /**
      * Exchanges an authorization code for access tokens and retrieves the user's
      * calendars.
@@ -426,6 +888,8 @@ public class GoogleCalendarService {
             Credential credential = flow.createAndStoreCredential(tokenResponse, userId);
 
             if (userAuthData.saveTokens(userId, credential)) {
+                calendarClientProvider.invalidate(userId);
+                userCalendarsCache.invalidate(userId);
                 UserCalendar userCalendar = new UserCalendar();
                 int count = 1;
                 res = "Select a calendar:";
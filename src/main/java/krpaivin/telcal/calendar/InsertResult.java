@@ -0,0 +1,14 @@
+package krpaivin.telcal.calendar;
+
+/**
+ * Outcome of creating one event of a batch.
+ *
+ * @param event the event that was requested.
+ * @param error the error returned by Google, or null if the event was created.
+ */
+public record InsertResult(NewEvent event, String error) {
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
@@ -0,0 +1,98 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+
+/**
+ * Merges the events of several calendars into one sequence ordered by start time.
+ *
+ * Each source cursor is already ordered, so only the head of every cursor is kept in a
+ * priority queue (k-way merge). An event copied to several calendars has the same
+ * iCalUID and start time in each of them and is returned only once; since copies
+ * start at the same time, only the keys of the current start time have to be kept.
+ */
+public class MergedEventCursor implements EventCursor {
+    private final List<EventCursor> cursors;
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong(Head::start));
+    private final Set<String> keysAtCurrentStart = new HashSet<>();
+    private long currentStart = Long.MIN_VALUE;
+    private boolean initialized;
+    private Event next;
+
+    /**
+     * @param cursors the cursors to merge, each ordered by start time; they are closed
+     *                together with this cursor.
+     */
+    public MergedEventCursor(List<EventCursor> cursors) {
+        this.cursors = cursors;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (!initialized) {
+            for (EventCursor cursor : cursors) {
+                advance(cursor);
+            }
+            initialized = true;
+        }
+
+        while (next == null && !heads.isEmpty()) {
+            Head head = heads.poll();
+            advance(head.cursor());
+            if (isFirstCopy(head)) {
+                next = head.event();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Event next() {
+        Event event = next;
+        next = null;
+        return event;
+    }
+
+    @Override
+    public void close() {
+        for (EventCursor cursor : cursors) {
+            cursor.close();
+        }
+    }
+
+    private void advance(EventCursor cursor) throws IOException {
+        if (cursor.hasNext()) {
+            Event event = cursor.next();
+            heads.add(new Head(event, startOf(event), cursor));
+        }
+    }
+
+    private boolean isFirstCopy(Head head) {
+        if (head.start() != currentStart) {
+            currentStart = head.start();
+            keysAtCurrentStart.clear();
+        }
+        String uid = head.event().getICalUID() != null ? head.event().getICalUID() : head.event().getId();
+        return uid == null || keysAtCurrentStart.add(uid);
+    }
+
+    private static long startOf(Event event) {
+        if (event.getStart() == null) {
+            return Long.MIN_VALUE;
+        }
+        DateTime start = event.getStart().getDateTime() != null
+                ? event.getStart().getDateTime()
+                : event.getStart().getDate();
+        return start != null ? start.getValue() : Long.MIN_VALUE;
+    }
+
+    private record Head(Event event, long start, EventCursor cursor) {
+    }
+}
@@ -0,0 +1,15 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event to be created in the user's calendar, in the time zone of the calendar.
+ *
+ * @param summary       the event summary (title).
+ * @param description   the event description.
+ * @param startDateTime the start date and time of the event.
+ * @param endDateTime   the end date and time of the event.
+ */
+public record NewEvent(String summary, String description, LocalDateTime startDateTime,
+        LocalDateTime endDateTime) {
+}
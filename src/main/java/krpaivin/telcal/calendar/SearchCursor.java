@@ -0,0 +1,103 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.api.services.calendar.model.Event;
+
+/**
+ * Open search whose results are shown page by page.
+ *
+ * Pages are formatted from the event cursor only when they are requested for the first
+ * time, so the events behind the pages nobody opens are never fetched. Formatted pages
+ * are kept, so going back does not query the calendar again. A page ends after the
+ * configured number of events or before the text would exceed the length of a
+ * Telegram message. Events are rendered by {@link EventRenderer} into one builder
+ * reused for all pages.
+ */
+public class SearchCursor implements AutoCloseable {
+    static final int MAX_PAGE_LENGTH = 4000;
+
+    private final String id;
+    private final String userId;
+    private final EventCursor events;
+    private final int pageSize;
+    private final List<String> pages = new ArrayList<>();
+    private final StringBuilder page = new StringBuilder(MAX_PAGE_LENGTH);
+    private Event carriedOver;
+
+    /**
+     * @param id        the ID of the cursor, part of the callback data of the buttons.
+     * @param userId    the ID of the user who started the search.
+     * @param events    the found events; closed together with this cursor.
+     * @param pageSize  the maximum number of events on a page.
+     */
+    public SearchCursor(String id, String userId, EventCursor events, int pageSize) {
+        this.id = id;
+        this.userId = userId;
+        this.events = events;
+        this.pageSize = pageSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns a page, formatting the pages up to it if they have not been read yet.
+     *
+     * @param index the index of the page.
+     * @return the page, or null if there are fewer pages.
+     * @throws IOException if the events cannot be loaded.
+     */
+    public synchronized SearchPage page(int index) throws IOException {
+        while (pages.size() <= index && hasMoreEvents()) {
+            pages.add(readPage());
+        }
+        if (index < 0 || index >= pages.size()) {
+            return null;
+        }
+        boolean hasNext = index + 1 < pages.size() || hasMoreEvents();
+        String header = index == 0 ? "Events found: \n" : "Events found, page " + (index + 1) + ": \n";
+        return new SearchPage(header + pages.get(index), id, index, index > 0, hasNext);
+    }
+
+    private boolean hasMoreEvents() throws IOException {
+        return carriedOver != null || events.hasNext();
+    }
+
+    private String readPage() throws IOException {
+        page.setLength(0);
+        int count = 0;
+        while (count < pageSize && hasMoreEvents()) {
+            Event event = carriedOver != null ? carriedOver : events.next();
+            carriedOver = null;
+            int lineStart = page.length();
+            if (count > 0) {
+                page.append('\n');
+            }
+            EventRenderer.appendEvent(page, event);
+            if (page.length() > MAX_PAGE_LENGTH) {
+                if (count > 0) {
+                    // Start the next page with this event
+                    page.setLength(lineStart);
+                    carriedOver = event;
+                    break;
+                }
+                page.setLength(MAX_PAGE_LENGTH);
+            }
+            count++;
+        }
+        return page.toString();
+    }
+
+    @Override
+    public void close() {
+        events.close();
+    }
+}
@@ -0,0 +1,24 @@
+package krpaivin.telcal.calendar;
+
+/**
+ * One page of search results.
+ *
+ * @param text        the formatted events of the page.
+ * @param cursorId    the ID of the cursor holding the other pages, null if all results
+ *                    fit into this page.
+ * @param index       the index of the page, starting at 0.
+ * @param hasPrevious true if there is a page before this one.
+ * @param hasNext     true if there is a page after this one.
+ */
+public record SearchPage(String text, String cursorId, int index, boolean hasPrevious, boolean hasNext) {
+
+    /**
+     * Creates a page that is the only one of its search.
+     *
+     * @param text the text of the page.
+     * @return the page, without navigation.
+     */
+    public static SearchPage single(String text) {
+        return new SearchPage(text, null, 0, false, false);
+    }
+}
@@ -0,0 +1,19 @@
+package krpaivin.telcal.calendar;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A time interval, start inclusive and end exclusive.
+ */
+public record TimeSlot(ZonedDateTime start, ZonedDateTime end) {
+
+    /**
+     * Returns the length of the interval.
+     *
+     * @return the duration between start and end.
+     */
+    public Duration duration() {
+        return Duration.between(start, end);
+    }
+}
@@ -0,0 +1,176 @@
+package krpaivin.telcal.calendar;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.api.client.auth.oauth2.Credential;
+
+import jakarta.annotation.PreDestroy;
+import krpaivin.telcal.config.StatsSource;
+import krpaivin.telcal.config.TelegramProperties;
+import krpaivin.telcal.config.ThreadFactories;
+import krpaivin.telcal.data.UserAuthData;
+
+/**
+ * Refreshes OAuth access tokens off the request path.
+ *
+ * Concurrent refreshes of the same user share one in-flight call. The credentials of
+ * recently active users (those with a cached Calendar client) are refreshed in the
+ * background shortly before they expire, so a user request normally finds a valid
+ * token. Refreshed tokens are written to the database asynchronously; when several
+ * writes for the same user are waiting, only the latest tokens are saved.
+ */
+@Component
+public class TokenManager implements StatsSource {
+    private static final Logger logger = Logger.getLogger(TokenManager.class.getName());
+
+    private final UserAuthData userAuthData;
+    private final Cache<String, CalendarClient> calendarClientCache;
+    private final TelegramProperties telegramProperties;
+    private final Map<String, CompletableFuture<Void>> refreshesInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Credential> pendingWrites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+    private final ExecutorService writer;
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong coalescedRefreshes = new AtomicLong();
+    private final AtomicLong proactiveRefreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+
+    public TokenManager(UserAuthData userAuthData, Cache<String, CalendarClient> calendarClientCache,
+            TelegramProperties telegramProperties) {
+        this.userAuthData = userAuthData;
+        this.calendarClientCache = calendarClientCache;
+        this.telegramProperties = telegramProperties;
+
+        this.refresher = Executors.newScheduledThreadPool(2, ThreadFactories.daemonThreadFactory("token-refresher"));
+        this.writer = Executors.newSingleThreadExecutor(ThreadFactories.daemonThreadFactory("token-writer"));
+
+        long period = telegramProperties.getTokenRefreshCheckSeconds();
+        refresher.scheduleWithFixedDelay(this::refreshExpiringTokens, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Makes sure the credential has a valid access token, waiting for a refresh only if
+     * the token has already expired.
+     *
+     * @param userId     the unique identifier of the user.
+     * @param credential the credential of the user.
+     * @throws IOException if the token cannot be refreshed.
+     */
+    public void ensureValid(String userId, Credential credential) throws IOException {
+        Long expiresIn = credential.getExpiresInSeconds();
+        if (credential.getAccessToken() != null && expiresIn != null && expiresIn > 0) {
+            return;
+        }
+
+        try {
+            refresh(userId, credential).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Refreshes the access token of the user, joining the refresh already in progress
+     * if there is one.
+     *
+     * @param userId     the unique identifier of the user.
+     * @param credential the credential of the user.
+     * @return a future completed when the token has been refreshed.
+     */
+    public CompletableFuture<Void> refresh(String userId, Credential credential) {
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        CompletableFuture<Void> inFlight = refreshesInFlight.putIfAbsent(userId, created);
+        if (inFlight != null) {
+            coalescedRefreshes.incrementAndGet();
+            return inFlight;
+        }
+
+        refresher.execute(() -> {
+            try {
+                refreshes.incrementAndGet();
+                if (credential.refreshToken()) {
+                    created.complete(null);
+                } else {
+                    failedRefreshes.incrementAndGet();
+                    created.completeExceptionally(new IOException("Access token refresh was rejected"));
+                }
+            } catch (IOException | RuntimeException e) {
+                failedRefreshes.incrementAndGet();
+                created.completeExceptionally(e);
+            } finally {
+                refreshesInFlight.remove(userId, created);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Queues the tokens of the credential to be saved. Called after every successful
+     * refresh, including the ones done by the client itself.
+     *
+     * @param userId     the unique identifier of the user.
+     * @param credential the refreshed credential.
+     */
+    public void saveTokensAsync(String userId, Credential credential) {
+        if (pendingWrites.put(userId, credential) == null) {
+            writer.execute(() -> {
+                Credential latest = pendingWrites.remove(userId);
+                if (latest != null && !userAuthData.saveTokens(userId, latest)) {
+                    logger.warning("Error saving refreshed tokens of user " + userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Refreshes in the background the tokens of recently active users that are about
+     * to expire.
+     */
+    private void refreshExpiringTokens() {
+        long refreshAhead = telegramProperties.getTokenRefreshAheadSeconds();
+        calendarClientCache.asMap().forEach((userId, client) -> {
+            Credential credential = client.getCredential();
+            Long expiresIn = credential.getExpiresInSeconds();
+            if (credential.getRefreshToken() != null && expiresIn != null && expiresIn <= refreshAhead) {
+                proactiveRefreshes.incrementAndGet();
+                refresh(userId, credential).exceptionally(e -> {
+                    logger.warning("Background token refresh failed for user " + userId + ": " + e.getMessage());
+                    return null;
+                });
+            }
+        });
+    }
+
+    @Override
+    public String getStats() {
+        return String.format("Token refreshes: %d (%d in background, %d coalesced, %d failed)",
+                refreshes.get(), proactiveRefreshes.get(), coalescedRefreshes.get(), failedRefreshes.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
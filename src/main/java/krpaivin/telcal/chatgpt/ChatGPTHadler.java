@@ -1,41 +1,59 @@
 package krpaivin.telcal.chatgpt;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.stream.Collectors;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import lombok.RequiredArgsConstructor;
 
+import krpaivin.telcal.chatgpt.PromptTemplate.Slot;
 import krpaivin.telcal.config.Constants;
+import krpaivin.telcal.config.ExternalHttpClient;
+import krpaivin.telcal.config.ExternalHttpClient.TextResponse;
 import krpaivin.telcal.config.Messages;
+import krpaivin.telcal.config.StatsSource;
 import krpaivin.telcal.config.TelegramProperties;
 import krpaivin.telcal.data.UserAuthData;
 
 /**
  * Handles communication with the ChatGPT API for generating responses based on
  * user input and request type.
+ *
+ * The system prompts are compiled into {@link PromptTemplate}s once. Per request only
+ * the date context, formatted once per day, and the keyword block of the user, cached
+ * until the user changes the keywords, are inserted into them. These values are kept in
+ * a CONTEXT section at the end of the prompt: the instructions before it are identical
+ * for all users and days, so the provider can serve them from its prompt prefix cache.
+ * The share of prompt tokens served from that cache is reported per request type.
+ *
+ * Responses are cached until the end of the day by request type, normalized user text,
+ * date and keyword rules, so a repeated request skips the OpenAI round trip.
  */
 @RequiredArgsConstructor
 @Service
-public class ChatGPTHadler {
+public class ChatGPTHadler implements StatsSource {
+    private static final int HTTP_OK = 200;
+    private static final Map<TypeGPTRequest, PromptTemplate> TEMPLATES = compileTemplates();
 
     private final UserAuthData userAuthData;
     private final TelegramProperties telegramProperties;
+    private final ExternalHttpClient externalHttpClient;
+    private final Cache<String, String> keywordPromptCache;
+    private final Cache<GptResponseKey, String> gptResponseCache;
+    private final Map<TypeGPTRequest, PromptUsage> promptUsage = createPromptUsage();
+    private volatile DateContext dateContext;
 
     /**
      * Gets a response from ChatGPT based on the provided voice text, request type,
@@ -56,36 +74,110 @@ public class ChatGPTHadler {
         return getResponseFromChatGPT(voiceText, typeGPTRequest, userId);
     }
 
+    private static Map<TypeGPTRequest, PromptTemplate> compileTemplates() {
+        Map<TypeGPTRequest, PromptTemplate> templates = new EnumMap<>(TypeGPTRequest.class);
+        templates.put(TypeGPTRequest.CREATING_EVENT, getInstructionsForCreatingCalendar());
+        templates.put(TypeGPTRequest.ANALYTICS, getInstructionsForAnalytics());
+        templates.put(TypeGPTRequest.SEARCH, getInstructionsForSearch());
+        templates.put(TypeGPTRequest.CREATING_EVENT_TEXT, getInstructionsForCreatingCalendarFromText());
+        templates.put(TypeGPTRequest.ANALYTICS_TEXT, getInstructionsForAnalyticsFromText());
+        templates.put(TypeGPTRequest.SEARCH_TEXT, getInstructionsForSearchFromText());
+        templates.put(TypeGPTRequest.AVAILABILITY, getInstructionsForAvailability());
+        return templates;
+    }
+
+    /**
+     * Returns the compiled system prompt of a request type.
+     *
+     * @param type the type of request to determine the instructions sent to
+     *             ChatGPT.
+     * @return the template of the system prompt.
+     * @throws IOException if the request type is unknown.
+     */
+    private PromptTemplate templateOf(TypeGPTRequest type) throws IOException {
+        PromptTemplate template = TEMPLATES.get(type);
+        if (template == null) {
+            throw new IOException(Messages.UNKNOWN_REQUEST_GPT);
+        }
+        return template;
+    }
+
     /**
-     * Builds the system prompt for the ChatGPT API based on the request type.
+     * Returns the keyword rules of the user if the template contains them.
      *
-     * @param type   the type of request to determine the instructions sent to
-     *               ChatGPT.
-     * @param userId the ID of the user making the request.
-     * @return the system prompt for the ChatGPT API.
-     * @throws IOException if there is an error with the API connection or the
-     *                     request type is unknown.
+     * @param template the template of the system prompt.
+     * @param userId   the ID of the user making the request.
+     * @return the keyword rules, or null if the template does not use them.
      */
-    private String buildSystemPrompt(TypeGPTRequest type, String userId) throws IOException {
-        return switch (type) {
-            case CREATING_EVENT -> getInstructionsForCreatingCalendar(userId);
-            case ANALYTICS -> getInstructionsForAnalytics();
-            case SEARCH -> getInstructionsForSearch();
-            case CREATING_EVENT_TEXT -> getInstructionsForCreatingCalendarFromText();
-            case ANALYTICS_TEXT -> getInstructionsForAnalyticsFromText();
-            case SEARCH_TEXT -> getInstructionsForSearchFromText();
-            default -> throw new IOException(Messages.UNKNOWN_REQUEST_GPT);
-        };
+    private String keywordsFor(PromptTemplate template, String userId) {
+        return template.uses(Slot.KEYWORDS)
+                ? keywordPromptCache.get(userId, this::buildKeywordBlock)
+                : null;
     }
 
-    private String today() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern(Constants.DATE_PATTERN_DASH));
+    /**
+     * Returns the dates of today, formatted again only on the first request after
+     * midnight.
+     *
+     * @return the date context of today.
+     */
+    private DateContext currentDateContext() {
+        LocalDate today = LocalDate.now();
+        DateContext context = dateContext;
+        if (context == null || !context.day().equals(today)) {
+            context = DateContext.of(today);
+            dateContext = context;
+        }
+        return context;
     }
 
-    private String tomorrow() {
-        return LocalDateTime.now()
-                .plusDays(1)
-                .format(DateTimeFormatter.ofPattern(Constants.DATE_PATTERN_DASH));
+    /**
+     * Builds the keyword rules of a user: the allowed keywords, the compound keywords
+     * and the default keyword. The result is cached in {@code keywordPromptCache} and
+     * dropped by {@link UserAuthData} whenever the keywords change.
+     *
+     * @param userId the ID of the user.
+     * @return the keyword rules, empty if the user has no keywords.
+     */
+    private String buildKeywordBlock(String userId) {
+        String keywords = userAuthData.getKeywords(userId);
+        String defaultKeyword = userAuthData.getDefaultKeywords(userId);
+        String compoundKeywords = userAuthData.getCompoundKeywords(userId);
+        StringBuilder sb = new StringBuilder();
+
+        if ((keywords != null && !keywords.isEmpty()) || (compoundKeywords != null && !compoundKeywords.isEmpty())) {
+
+            sb.append("""
+                        KEYWORD RULES:
+
+                        Allowed keywords:
+
+                    """);
+
+            if (keywords != null && !keywords.isEmpty()) {
+                sb.append(keywords).append("\n");
+            }
+
+            if (compoundKeywords != null && !compoundKeywords.isEmpty()) {
+                sb.append(compoundKeywords).append("\n");
+
+                for (String compound : compoundKeywords.split(",")) {
+                    sb.append("Words \"").append(compound).append("\" together mean one keyword.\n");
+                }
+            }
+
+            sb.append("\n");
+        }
+
+        if (defaultKeyword != null && !defaultKeyword.isEmpty()) {
+            sb.append("""
+                    If keyword is missing, use default keyword:
+                    """)
+                    .append(defaultKeyword)
+                    .append("\n\n");
+        }
+
+        return sb.toString();
     }
 
     private JSONObject buildRequestJson(String systemPrompt, String userPrompt) {
@@ -112,39 +204,11 @@ public class ChatGPTHadler {
         return jsonInput;
     }
 
-    private HttpURLConnection createConnection() throws IOException, URISyntaxException {
-        URL url = new URI(telegramProperties.getOpenAIURL()).toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Authorization", "Bearer " + telegramProperties.getOpenAIKey().trim());
-        connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-        connection.setDoOutput(true);
-
-        return connection;
-    }
-
-    private String readResponse(HttpURLConnection connection, int responseCode) throws IOException {
-
-        InputStream inputStream;
-
-        try {
-            // Try to get inputStream (for successful responses)
-            inputStream = connection.getInputStream();
-        } catch (IOException e) {
-            // If it is not possible to get inputStream, then it is an error - read from
-            // errorStream
-            inputStream = connection.getErrorStream();
-        }
-
-        // If errorStream is also null, then there is a problem with the connection
-        if (inputStream == null) {
-            throw new IOException("Failed to get response from OpenAI API. HTTP Code: " + responseCode);
-        }
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            return reader.lines().collect(Collectors.joining());
-        }
+    private HttpRequest.Builder createRequest(JSONObject request) throws URISyntaxException {
+        return HttpRequest.newBuilder(new URI(telegramProperties.getOpenAIURL()))
+                .header("Authorization", "Bearer " + telegramProperties.getOpenAIKey().trim())
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(request.toString()));
     }
 
     private String parseError(String responseBody, int responseCode) {
@@ -171,26 +235,21 @@ public class ChatGPTHadler {
         return "HTTP " + responseCode + ": " + responseBody;
     }
 
-    private String sendRequest(HttpURLConnection connection, JSONObject request) throws IOException {
+    private String sendRequest(HttpRequest.Builder request) throws IOException {
 
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] input = request.toString().getBytes(StandardCharsets.UTF_8);
-            os.write( input, 0, input.length);
-        }
-
-        int responseCode = connection.getResponseCode();
-        String responseBody = readResponse(connection, responseCode);
+        TextResponse response = externalHttpClient.send(ExternalHttpClient.Endpoint.OPENAI, request);
 
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            throw new IOException(parseError(responseBody, responseCode));
+        if (response.statusCode() != HTTP_OK) {
+            throw new IOException(parseError(response.body(), response.statusCode()));
         }
 
-        return responseBody;
+        return response.body();
     }
 
-    private String extractContent(String responseBody) {
+    private String extractContent(String responseBody, TypeGPTRequest typeGPTRequest) {
 
         JSONObject jsonObject = new JSONObject(responseBody);
+        recordUsage(typeGPTRequest, jsonObject.optJSONObject("usage"));
 
         return jsonObject.getJSONArray("choices")
                 .getJSONObject(0)
@@ -198,6 +257,66 @@ public class ChatGPTHadler {
                 .getString("content");
     }
 
+    /**
+     * Counts the prompt tokens of a response and how many of them the provider served
+     * from its prompt prefix cache ({@code usage.prompt_tokens_details.cached_tokens}).
+     *
+     * @param typeGPTRequest the type of the request.
+     * @param usage          the usage object of the response, may be null.
+     */
+    private void recordUsage(TypeGPTRequest typeGPTRequest, JSONObject usage) {
+        PromptUsage typeUsage = promptUsage.get(typeGPTRequest);
+        typeUsage.requests.increment();
+        if (usage == null) {
+            return;
+        }
+        typeUsage.promptTokens.add(usage.optLong("prompt_tokens"));
+        JSONObject details = usage.optJSONObject("prompt_tokens_details");
+        long cachedTokens = details == null ? 0 : details.optLong("cached_tokens");
+        typeUsage.cachedTokens.add(cachedTokens);
+        if (cachedTokens > 0) {
+            typeUsage.cacheHits.increment();
+        }
+    }
+
+    @Override
+    public String getStats() {
+        StringBuilder stats = new StringBuilder("GPT prompt cache:");
+        promptUsage.forEach((type, usage) -> {
+            long requests = usage.requests.sum();
+            if (requests == 0) {
+                return;
+            }
+            long promptTokens = usage.promptTokens.sum();
+            long cachedTokens = usage.cachedTokens.sum();
+            stats.append(String.format(
+                    "%n  %s: %d requests, %d with cached prefix, %d of %d prompt tokens cached (%d%%)",
+                    type, requests, usage.cacheHits.sum(), cachedTokens, promptTokens,
+                    promptTokens == 0 ? 0 : cachedTokens * 100 / promptTokens));
+        });
+        CacheStats responseStats = gptResponseCache.stats();
+        stats.append(String.format(
+                "%nGPT response cache: %d entries, hit ratio %.1f%% (%d hits, %d misses, %d evictions)",
+                gptResponseCache.estimatedSize(), responseStats.hitRate() * 100, responseStats.hitCount(),
+                responseStats.missCount(), responseStats.evictionCount()));
+        return stats.toString();
+    }
+
+    private static Map<TypeGPTRequest, PromptUsage> createPromptUsage() {
+        Map<TypeGPTRequest, PromptUsage> usage = new EnumMap<>(TypeGPTRequest.class);
+        for (TypeGPTRequest type : TypeGPTRequest.values()) {
+            usage.put(type, new PromptUsage());
+        }
+        return usage;
+    }
+
+    private static class PromptUsage {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+    }
+
     private void checkApiKey() {
         String apiKey = telegramProperties.getOpenAIKey();
 
@@ -223,21 +342,31 @@ public class ChatGPTHadler {
      */
     protected String getResponseFromChatGPT(String voiceText, TypeGPTRequest typeGPTRequest, String userId) {
         try {
+            PromptTemplate template = templateOf(typeGPTRequest);
+            String keywords = keywordsFor(template, userId);
+            DateContext date = currentDateContext();
+
+            // Repeated requests of the same day are answered from the cache
+            GptResponseKey key = GptResponseKey.of(typeGPTRequest, voiceText, date.day(), keywords);
+            String cached = gptResponseCache.getIfPresent(key);
+            if (cached != null) {
+                return cached;
+            }
+
             // Check if OpenAI API key is configured
             checkApiKey();
 
-            String systemPrompt = buildSystemPrompt(typeGPTRequest, userId);
+            String systemPrompt = template.render(date, keywords);
             String userPrompt = voiceText;
 
-            // Connect to ChatGPT API to get response
-            HttpURLConnection connection = createConnection();
-
             JSONObject jsonInput = buildRequestJson(systemPrompt, userPrompt);
 
-            // Get a response from ChatGPT
-            String response = sendRequest(connection, jsonInput);
+            // Get a response from ChatGPT over the shared HTTP client
+            String response = sendRequest(createRequest(jsonInput));
 
-            return extractContent(response);
+            String content = extractContent(response, typeGPTRequest);
+            gptResponseCache.put(key, content);
+            return content;
 
         } catch (JSONException e) {
             throw new JSONException(Messages.ERROR_JSON_GPT);
@@ -252,16 +381,16 @@ public class ChatGPTHadler {
     /**
      * Appends the role to the system prompt.
      *
-     * @param sb   the StringBuilder to append the role to.
+     * @param sb   the template builder to append the role to.
      * @param role the role to append.
      */
-    private void appendRole(StringBuilder sb, String role) {
-        sb.append("""
+    private static void appendRole(PromptTemplate.Builder sb, String role) {
+        sb.text("""
                 ROLE:
 
                 """)
-                .append(role)
-                .append("""
+                .text(role)
+                .text("""
 
                             Do not answer the user.
                             Do not explain your reasoning.
@@ -270,8 +399,8 @@ public class ChatGPTHadler {
                         """);
     }
 
-    private void appendKeywordRules(StringBuilder sb) {
-        sb.append(
+    private static void appendKeywordRules(PromptTemplate.Builder sb) {
+        sb.text(
                 """
                         KEYWORD RULES:
 
@@ -283,18 +412,47 @@ public class ChatGPTHadler {
                         """);
     }
 
+    /**
+     * Appends the values that change per day or per user. They are kept at the end of
+     * the prompt, so everything before them is the same for all users and days and the
+     * provider can reuse its cached processing of that prefix.
+     *
+     * @param sb    the template builder to append the context to.
+     * @param slots the values the instructions refer to.
+     */
+    private static void appendContext(PromptTemplate.Builder sb, Slot... slots) {
+        sb.text("""
+                CONTEXT:
+
+                """);
+        for (Slot slot : slots) {
+            if (slot == Slot.KEYWORDS) {
+                sb.text("\n").slot(slot);
+                continue;
+            }
+            String label = switch (slot) {
+                case TODAY -> "Today: ";
+                case TOMORROW -> "Tomorrow: ";
+                case CURRENT_YEAR -> "Current year: ";
+                case NEXT_YEAR -> "Next year: ";
+                case END_OF_TODAY -> "End of today: ";
+                default -> throw new IllegalArgumentException(slot.name());
+            };
+            sb.text(label).slot(slot).text("\n");
+        }
+    }
+
     /**
      * Constructs instructions for ChatGPT to process search-related requests.
      *
-     * @return a formatted instruction string for ChatGPT to perform the search.
+     * @return the instruction template for ChatGPT to perform the search.
      */
-    private String getInstructionsForSearch() {
-        String currentDate = today();
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForSearch() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res, "You are an information extraction engine.");
 
-        res.append("""
+        res.text("""
                     TASK:
                     Extract these fields:
                     - Start Date
@@ -304,7 +462,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                 DATE RULES:
 
                 Dates can be specified in natural language.
@@ -317,23 +475,18 @@ public class ChatGPTHadler {
                 - last year
                 - during the last 3 months
 
-                Calculate all relative dates from:
-                """)
-                .append(currentDate)
-                .append("""
+                Calculate all relative dates from Today in the CONTEXT section.
 
-                        If the period is not specified, use:
+                If the period is not specified, use:
 
-                        Start date: 1900-01-01 00:00
-                        End date: 2100-01-01 00:00
+                Start date: 1900-01-01 00:00
+                End date: 2100-01-01 00:00
 
-                        """)
-                .append("""
-                        """);
+                """);
 
         appendKeywordRules(res);
 
-        res.append("""
+        res.text("""
                     SEARCH TYPE RULES:
 
                     If user wants the first matching item: Search type = first
@@ -342,7 +495,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     OUTPUT RULES:
 
                     Output only the result.
@@ -366,7 +519,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     EXAMPLES:
 
                     Input:
@@ -399,25 +552,24 @@ public class ChatGPTHadler {
 
                 """);
 
-        return res.toString();
+        appendContext(res, Slot.TODAY);
+
+        return res.build();
     }
 
     /**
      * Constructs instructions for ChatGPT to perform analytics based on the given
      * text.
      *
-     * @return a formatted instruction string for ChatGPT to perform analytics.
+     * @return the instruction template for ChatGPT to perform analytics.
      */
-    private String getInstructionsForAnalytics() {
-        LocalDateTime today = LocalDateTime.now();
-        String currentDate = today();
-        String endDate = today.with(LocalTime.MAX).format(DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForAnalytics() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res,
                 "You are an information extraction engine. Your task is to extract analytics parameters from a user request.");
 
-        res.append("""
+        res.text("""
                     TASK:
                     Extract:
 
@@ -427,7 +579,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                 DATE RULES:
 
                 Dates can be specified in natural language.
@@ -439,24 +591,18 @@ public class ChatGPTHadler {
                 last month
                 last year
 
-                Calculate relative dates from:
-                """)
-                .append(currentDate)
-                .append("""
-                        If no period is specified, assume all available history.
+                Calculate relative dates from Today in the CONTEXT section.
+                If no period is specified, assume all available history.
 
-                        Use:
-                        Start date: 1900-01-01 00:00
-                        End date:
-                        """)
-                .append(endDate)
-                .append("""
+                Use:
+                Start date: 1900-01-01 00:00
+                End date: End of today in the CONTEXT section
 
-                        """);
+                """);
 
         appendKeywordRules(res);
 
-        res.append("""
+        res.text("""
                     OUTPUT FORMAT:
 
                     Return only result.
@@ -472,7 +618,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     EXAMPLES:
 
                     Input:
@@ -490,64 +636,111 @@ public class ChatGPTHadler {
 
                 """);
 
-        return res.toString();
+        appendContext(res, Slot.TODAY, Slot.END_OF_TODAY);
+
+        return res.build();
     }
 
-    private void appendAllowedKeywords(StringBuilder sb, String keywords, String compoundKeywords) {
+    /**
+     * Constructs instructions for ChatGPT to extract the period and the meeting
+     * duration of a free time request.
+     *
+     * @return the instruction template for ChatGPT to find free time.
+     */
+    private static PromptTemplate getInstructionsForAvailability() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
-        if ((keywords != null && !keywords.isEmpty()) || (compoundKeywords != null && !compoundKeywords.isEmpty())) {
+        appendRole(res, "You are an information extraction engine. Extract the parameters of a free time request.");
 
-            sb.append("""
-                        KEYWORD RULES:
+        res.text("""
+                    TASK:
+                    Extract:
 
-                        Allowed keywords:
+                    - Start Date
+                    - End Date
+                    - Duration (optional)
 
-                    """);
+                """);
 
-            if (keywords != null && !keywords.isEmpty()) {
-                sb.append(keywords).append("\n");
-            }
+        res.text("""
+                DATE RULES:
 
-            if (compoundKeywords != null && !compoundKeywords.isEmpty()) {
-                sb.append(compoundKeywords).append("\n");
-            }
+                Dates can be specified in natural language.
 
-            if (compoundKeywords != null && !compoundKeywords.isEmpty()) {
-                String[] compounds = compoundKeywords.split(",");
+                Examples:
+                today
+                tomorrow
+                this week
+                next week
+                on Friday
 
-                for (String compound : compounds) {
-                    sb.append("Words \"").append(compound).append("\" together mean one keyword.\n");
-                }
-            }
+                Calculate relative dates from Today in the CONTEXT section.
 
-            sb.append("\n");
-        }
+                A single day means from 00:00 to 23:59 of that day.
+                If no period is specified, use the next 7 days starting today.
+
+                """);
+
+        res.text("""
+                    DURATION RULES:
+
+                    Duration is the length of the meeting the user wants to fit, in minutes.
+                    If duration is not specified, do not output it.
+
+                """);
+
+        res.text("""
+                    OUTPUT FORMAT:
+
+                    Return only result.
+                    No explanations.
+                    No markdown.
 
+
+                    If duration exists:
+                    Start date: yyyy-MM-dd HH:mm / End date: yyyy-MM-dd HH:mm / Duration=minutes
+
+                    If duration does not exist:
+                    Start date: yyyy-MM-dd HH:mm / End date: yyyy-MM-dd HH:mm
+
+                """);
+
+        res.text("""
+                    EXAMPLES:
+
+                    Input:
+                    When am I free for an hour tomorrow?
+
+                    Output:
+                    Start date: calculated date 00:00 / End date: calculated date 23:59 / Duration=60
+
+
+                    Input:
+                    Free time next week
+
+                    Output:
+                    Start date: calculated date / End date: calculated date
+
+                """);
+
+        appendContext(res, Slot.TODAY);
+
+        return res.build();
     }
 
     /**
      * Constructs instructions for ChatGPT to create a calendar event from the
      * provided text and user-specific data.
      *
-     * @param userId the ID of the user for accessing personalized data.
-     * @return a formatted instruction string for ChatGPT to create a calendar
+     * @return the instruction template for ChatGPT to create a calendar
      *         event.
      */
-    private String getInstructionsForCreatingCalendar(String userId) {
-
-        LocalDateTime today = LocalDateTime.now();
-        String todayStr = today();
-        String tomorrowStr = tomorrow();
-        String currentYear = today.format(DateTimeFormatter.ofPattern(Constants.YEAR_PATTERN));
-        String nextYear = today.plusYears(1).format(DateTimeFormatter.ofPattern(Constants.YEAR_PATTERN));
-        String keywords = userAuthData.getKeywords(userId);
-        String defaultKeyword = userAuthData.getDefaultKeywords(userId);
-        String compoundKeywords = userAuthData.getCompoundKeywords(userId);
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForCreatingCalendar() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res, "You are a calendar event extraction engine. Extract structured event data from user text.");
 
-        res.append("""
+        res.text("""
                     TASK:
 
                     Extract:
@@ -560,7 +753,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                 DATE RULES:
 
                 Date can be written in natural language.
@@ -571,28 +764,16 @@ public class ChatGPTHadler {
                 next week
                 next Monday
 
-                Calculate relative dates from:
-                """)
-                .append(todayStr)
-                .append("""
-                        If year is missing:
-
-                        Use current year:
-                        """)
-                .append(currentYear)
-                .append("""
-                            If date is already passed, use next year:
-                        """)
-                .append(nextYear)
-                .append("""
-                        If date is missing: use tomorrow:
-                        """)
-                .append(tomorrowStr)
-                .append("""
+                Calculate relative dates from Today in the CONTEXT section.
+                If year is missing:
 
-                        """);
+                Use Current year from the CONTEXT section.
+                    If date is already passed, use Next year from the CONTEXT section.
+                If date is missing: use Tomorrow from the CONTEXT section.
 
-        res.append("""
+                """);
+
+        res.text("""
                     TIME RULES:
 
                     Time can be written in natural language.
@@ -606,7 +787,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     DURATION RULES:
 
                     Duration is measured in minutes.
@@ -616,24 +797,14 @@ public class ChatGPTHadler {
 
                 """);
 
-        appendAllowedKeywords(res, keywords, compoundKeywords);
-
-        if (defaultKeyword != null && !defaultKeyword.isEmpty()) {
-            res.append("""
-                    If keyword is missing, use default keyword:
-                    """)
-                    .append(defaultKeyword)
-                    .append("\n\n");
-        }
-
-        res.append("""
+        res.text("""
                     DESCRIPTION RULES:
 
                     Description is remaining text after removing date, time and duration.
 
                 """);
 
-        res.append("""
+        res.text("""
                     OUTPUT FORMAT:
 
                     If keyword exists:
@@ -645,9 +816,13 @@ public class ChatGPTHadler {
 
                     Do not output the word "Description".
 
+                    If the text contains several events (for example the same activity on
+                    several days), output every event on its own line in the same format.
+                    Do not output anything else between the lines.
+
                 """);
 
-        res.append("""
+        res.text("""
                 EXAMPLE:
 
                 Input:
@@ -655,29 +830,27 @@ public class ChatGPTHadler {
 
                 Output:
 
-                """)
-                .append(tomorrowStr)
-                .append("""
-                        10:00 /  Duration=60 / work. meeting
+                calculated date 10:00 /  Duration=60 / work. meeting
 
-                        """);
+                """);
+
+        appendContext(res, Slot.TODAY, Slot.TOMORROW, Slot.CURRENT_YEAR, Slot.NEXT_YEAR, Slot.KEYWORDS);
 
-        return res.toString();
+        return res.build();
     }
 
     /**
      * Generates a string containing instructions for analyzing and formatting a
      * source text to create a calendar entry.
      *
-     * @return a formatted string with instructions for processing the text
+     * @return the template of the instructions for processing the text
      */
-    private String getInstructionsForCreatingCalendarFromText() {
-        String tomorrowStr = tomorrow();
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForCreatingCalendarFromText() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res, "You are a calendar text formatter. Convert user text into a calendar entry.");
 
-        res.append("""
+        res.text("""
                     TASK:
 
                     Extract:
@@ -688,11 +861,14 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     RULES:
 
                     Date, time and description must exist in source text.
 
+                    Calculate relative dates from Today in the CONTEXT section.
+                    Tomorrow is Tomorrow in the CONTEXT section.
+
                     If date is missing:
                     Output: Error. Date is not specified.
 
@@ -704,42 +880,42 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     OUTPUT FORMAT:
 
                     yyyy-MM-dd HH:mm Description
 
                 """);
 
-        res.append("""
+        res.text("""
                 EXAMPLE:
 
                 Input:
                 Meeting tomorrow at 10 discuss project
 
-                Output:""")
-                .append(tomorrowStr)
-                .append("""
-                        10:00 discuss project
+                Output:
+                calculated date 10:00 discuss project
 
-                        """);
+                """);
+
+        appendContext(res, Slot.TODAY, Slot.TOMORROW);
 
-        return res.toString();
+        return res.build();
     }
 
     /**
      * Generates a string containing instructions for analyzing and formatting a
      * source text for analytics.
      *
-     * @return a formatted string with instructions for processing the text
+     * @return the template of the instructions for processing the text
      */
-    private String getInstructionsForAnalyticsFromText() {
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForAnalyticsFromText() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res,
                 "You are an analytics query formatting engine. Convert user text into structured analytics parameters.");
 
-        res.append("""
+        res.text("""
                     TASK:
 
                     Extract:
@@ -750,7 +926,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                 DATE RULES:
 
                 Dates may be specified in natural language.
@@ -769,7 +945,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     DESCRIPTION RULES:
 
                     Description is the remaining text after removing all detected dates.
@@ -777,7 +953,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     OUTPUT FORMAT:
 
                     Output only:
@@ -789,7 +965,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     EXAMPLE:
 
                     Input:
@@ -800,7 +976,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        return res.toString();
+        return res.build();
     }
 
     /**
@@ -808,14 +984,14 @@ public class ChatGPTHadler {
      * source text for a search query.
      *
      * @param text the source text to analyze
-     * @return a formatted string with instructions for processing the text
+     * @return the template of the instructions for processing the text
      */
-    private String getInstructionsForSearchFromText() {
-        StringBuilder res = new StringBuilder();
+    private static PromptTemplate getInstructionsForSearchFromText() {
+        PromptTemplate.Builder res = PromptTemplate.builder();
 
         appendRole(res, "You are a text formatting engine. Convert user text into structured search parameters.");
 
-        res.append("""
+        res.text("""
                     TASK:
 
                     Extract:
@@ -827,7 +1003,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     SEARCH TYPE RULES:
 
                     first:
@@ -843,7 +1019,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     DESCRIPTION RULES:
 
                     Description is the remaining text after removing dates and search commands.
@@ -852,7 +1028,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     OUTPUT FORMAT:
 
                     Output only:
@@ -861,7 +1037,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        res.append("""
+        res.text("""
                     EXAMPLE:
 
                     Input:
@@ -873,7 +1049,7 @@ public class ChatGPTHadler {
 
                 """);
 
-        return res.toString();
+        return res.build();
     }
 
 }
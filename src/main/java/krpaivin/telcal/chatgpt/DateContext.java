@@ -0,0 +1,34 @@
+package krpaivin.telcal.chatgpt;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import krpaivin.telcal.config.Constants;
+
+/**
+ * The dates inserted into the prompts, formatted once per day.
+ *
+ * @param day         the day the values are computed for.
+ * @param today       today, yyyy-MM-dd.
+ * @param tomorrow    tomorrow, yyyy-MM-dd.
+ * @param currentYear the current year.
+ * @param nextYear    the next year.
+ * @param endOfToday  the last minute of today, yyyy-MM-dd HH:mm.
+ */
+record DateContext(LocalDate day, String today, String tomorrow, String currentYear, String nextYear,
+        String endOfToday) {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(Constants.DATE_PATTERN_DASH);
+    private static final DateTimeFormatter YEAR_FORMATTER = DateTimeFormatter.ofPattern(Constants.YEAR_PATTERN);
+
+    /**
+     * Formats the dates of a day.
+     *
+     * @param day the day.
+     * @return the date context of the day.
+     */
+    static DateContext of(LocalDate day) {
+        String today = day.format(DATE_FORMATTER);
+        return new DateContext(day, today, day.plusDays(1).format(DATE_FORMATTER), day.format(YEAR_FORMATTER),
+                day.plusYears(1).format(YEAR_FORMATTER), today + " 23:59");
+    }
+}
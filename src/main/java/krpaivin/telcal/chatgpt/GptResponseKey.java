@@ -0,0 +1,31 @@
+package krpaivin.telcal.chatgpt;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Key of a cached ChatGPT response.
+ *
+ * @param type     the type of the request.
+ * @param text     the user text, normalized.
+ * @param day      the day of the date context the prompt was rendered with; relative
+ *                 dates in the response are only valid on that day.
+ * @param keywords the keyword rules the prompt was rendered with, empty for request
+ *                 types without keywords; a change of the user's keywords changes the
+ *                 key.
+ */
+public record GptResponseKey(TypeGPTRequest type, String text, LocalDate day, String keywords) {
+
+    /**
+     * Creates a key with the text normalized, so that "Analytics  for this week." and
+     * "analytics for this week" share an entry. The case of the text is kept for event
+     * creation, where it ends up in the event description.
+     */
+    public static GptResponseKey of(TypeGPTRequest type, String text, LocalDate day, String keywords) {
+        String normalized = text == null ? "" : text.strip().replaceAll("\\s+", " ").replaceAll("[.!?]+$", "");
+        if (type != TypeGPTRequest.CREATING_EVENT && type != TypeGPTRequest.CREATING_EVENT_TEXT) {
+            normalized = normalized.toLowerCase(Locale.ROOT);
+        }
+        return new GptResponseKey(type, normalized, day, keywords == null ? "" : keywords);
+    }
+}
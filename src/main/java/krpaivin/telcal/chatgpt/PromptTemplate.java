@@ -0,0 +1,117 @@
+package krpaivin.telcal.chatgpt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A system prompt compiled once from static text and named slots.
+ *
+ * Consecutive static sections are joined into a single string when the template is
+ * built, so rendering a prompt only copies a handful of segments and the current slot
+ * values into a builder of the exact size. A template is immutable and can be shared
+ * between threads.
+ */
+final class PromptTemplate {
+
+    /**
+     * The values inserted into a template on every request.
+     */
+    enum Slot {
+        TODAY, TOMORROW, CURRENT_YEAR, NEXT_YEAR, END_OF_TODAY, KEYWORDS
+    }
+
+    private final String[] texts;
+    private final Slot[] slots;
+    private final int staticLength;
+
+    private PromptTemplate(List<String> texts, List<Slot> slots) {
+        this.texts = texts.toArray(String[]::new);
+        this.slots = slots.toArray(Slot[]::new);
+        this.staticLength = texts.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Creates a builder of a template.
+     *
+     * @return the builder.
+     */
+    static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks whether the template contains a slot, i.e. whether its value has to be
+     * provided to {@link #render}.
+     *
+     * @param slot the slot.
+     * @return true if the template contains the slot.
+     */
+    boolean uses(Slot slot) {
+        for (Slot used : slots) {
+            if (used == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders the prompt.
+     *
+     * @param date     the date context of the request.
+     * @param keywords the keyword block of the user, may be null if the template has no
+     *                 {@link Slot#KEYWORDS} slot.
+     * @return the prompt.
+     */
+    String render(DateContext date, String keywords) {
+        int length = staticLength;
+        for (Slot slot : slots) {
+            length += valueOf(slot, date, keywords).length();
+        }
+        StringBuilder prompt = new StringBuilder(length).append(texts[0]);
+        for (int i = 0; i < slots.length; i++) {
+            prompt.append(valueOf(slots[i], date, keywords)).append(texts[i + 1]);
+        }
+        return prompt.toString();
+    }
+
+    private static String valueOf(Slot slot, DateContext date, String keywords) {
+        return switch (slot) {
+            case TODAY -> date.today();
+            case TOMORROW -> date.tomorrow();
+            case CURRENT_YEAR -> date.currentYear();
+            case NEXT_YEAR -> date.nextYear();
+            case END_OF_TODAY -> date.endOfToday();
+            case KEYWORDS -> keywords;
+        };
+    }
+
+    /**
+     * Collects static text and slots in the order they appear in the prompt.
+     */
+    static final class Builder {
+        private final List<String> texts = new ArrayList<>();
+        private final List<Slot> slots = new ArrayList<>();
+        private StringBuilder text = new StringBuilder();
+
+        private Builder() {}
+
+        Builder text(String staticText) {
+            text.append(staticText);
+            return this;
+        }
+
+        Builder slot(Slot slot) {
+            texts.add(text.toString());
+            slots.add(slot);
+            text = new StringBuilder();
+            return this;
+        }
+
+        PromptTemplate build() {
+            List<String> allTexts = new ArrayList<>(texts);
+            allTexts.add(text.toString());
+            return new PromptTemplate(allTexts, slots);
+        }
+    }
+}
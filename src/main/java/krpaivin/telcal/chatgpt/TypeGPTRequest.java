@@ -1,5 +1,5 @@
 package krpaivin.telcal.chatgpt;
 
 public enum TypeGPTRequest {
-    CREATING_EVENT, ANALYTICS, SEARCH, CREATING_EVENT_TEXT, ANALYTICS_TEXT, SEARCH_TEXT;
+    CREATING_EVENT, ANALYTICS, SEARCH, CREATING_EVENT_TEXT, ANALYTICS_TEXT, SEARCH_TEXT, AVAILABILITY;
 }
@@ -1,5 +1,8 @@
 package krpaivin.telcal.config;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.context.annotation.Bean;
@@ -7,8 +10,18 @@ import org.springframework.context.annotation.Configuration;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
+import krpaivin.telcal.calendar.AnalyticsKey;
+import krpaivin.telcal.calendar.AnalyticsReport;
+import krpaivin.telcal.calendar.CalendarClient;
+import krpaivin.telcal.calendar.CalendarMetadata;
+import krpaivin.telcal.calendar.EventAggregator;
+import krpaivin.telcal.calendar.SearchCursor;
+import krpaivin.telcal.chatgpt.GptResponseKey;
+import krpaivin.telcal.data.KeywordMatcher;
 import krpaivin.telcal.entity.UserData;
+import krpaivin.telcal.telegram.ChatSession;
 
 /**
  * Configuration class for setting up application caches using the Caffeine library.
@@ -34,14 +47,14 @@ public class CacheConfig {
     }
 
     /**
-     * Creates a cache for storing session-related data.
+     * Creates a cache for storing chat sessions.
      * The cache has the following characteristics:
-     *     Entries expire 1 hour after last access.</li>
-     *     Maximum size is limited to 300 entries.</li>
-     * @return a {@link Cache} instance for managing {@code String -> String} mappings.
+     *     Entries expire 1 hour after last access.
+     *     Maximum size is limited to 300 entries.
+     * @return a {@link Cache} instance for managing {@code Long -> ChatSession} mappings.
      */
     @Bean
-    public Cache<String, String> sessionDataCache() {
+    public Cache<Long, ChatSession> chatSessionCache() {
         return Caffeine.newBuilder()
                 .expireAfterAccess(1, TimeUnit.HOURS)
                 .maximumSize(300)
@@ -62,4 +75,181 @@ public class CacheConfig {
                 .maximumSize(300)
                 .build();
     }
+
+    /**
+     * Creates a cache for storing Google Calendar clients per user.
+     * The cache has the following characteristics:
+     *     Entries expire 1 hour after last access.
+     *     Maximum size is limited to 300 entries.
+     * @return a {@link Cache} instance for managing {@code String -> CalendarClient} mappings.
+     */
+    @Bean
+    public Cache<String, CalendarClient> calendarClientCache() {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .maximumSize(300)
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing calendar metadata.
+     * The cache has the following characteristics:
+     *     Entries expire 1 day after write (they are revalidated every hour on use).
+     *     Maximum size is limited to 1000 entries.
+     * @return a {@link Cache} instance for managing {@code String -> CalendarMetadata} mappings.
+     */
+    @Bean
+    public Cache<String, CalendarMetadata> calendarMetadataCache() {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(1, TimeUnit.DAYS)
+                .maximumSize(1000)
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing the IDs of the calendars a user can read, used by the
+     * all calendars mode.
+     * The cache has the following characteristics:
+     *     Entries expire 1 hour after write.
+     *     Maximum size is limited to 300 entries.
+     * @return a {@link Cache} instance for managing {@code String -> List<String>} mappings.
+     */
+    @Bean
+    public Cache<String, List<String>> userCalendarsCache() {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(1, TimeUnit.HOURS)
+                .maximumSize(300)
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing analytics results.
+     * The cache has the following characteristics:
+     *     Entries expire after the configured time after write (changes made outside the bot
+     *     are seen after this time at the latest).
+     *     Maximum size is limited to 1000 entries.
+     *     Hit and miss statistics are recorded for the /stats command.
+     * @param telegramProperties the application properties.
+     * @return a {@link Cache} instance for managing {@code AnalyticsKey -> AnalyticsReport} mappings.
+     */
+    @Bean
+    public Cache<AnalyticsKey, AnalyticsReport> analyticsResultCache(TelegramProperties telegramProperties) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(telegramProperties.getAnalyticsCacheTtlSeconds(), TimeUnit.SECONDS)
+                .maximumSize(1000)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing the analytics aggregators of past months.
+     * The cache has the following characteristics:
+     *     Entries expire after the configured time after write; past months rarely change,
+     *     so this can be much longer than for whole results.
+     *     Maximum size is limited to 10000 entries (a few years of months for every request).
+     *     Hit and miss statistics are recorded for the /stats command.
+     * @param telegramProperties the application properties.
+     * @return a {@link Cache} instance for managing {@code AnalyticsKey -> EventAggregator} mappings.
+     */
+    @Bean
+    public Cache<AnalyticsKey, EventAggregator> analyticsShardCache(TelegramProperties telegramProperties) {
+        return Caffeine.newBuilder()
+                .expireAfterWrite(telegramProperties.getAnalyticsShardCacheTtlHours(), TimeUnit.HOURS)
+                .maximumSize(10000)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing the compiled keyword matchers of users.
+     * The cache has the following characteristics:
+     *     Entries expire 1 hour after last access; they are dropped as soon as the
+     *     keywords of the user change.
+     *     Maximum size is limited to 300 entries.
+     * @return a {@link Cache} instance for managing {@code String -> KeywordMatcher} mappings.
+     */
+    @Bean
+    public Cache<String, KeywordMatcher> keywordMatcherCache() {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .maximumSize(300)
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing the keyword rules inserted into the system prompts
+     * of users.
+     * The cache has the following characteristics:
+     *     Entries expire 1 hour after last access; they are dropped as soon as the
+     *     keywords or the default keyword of the user change.
+     *     Maximum size is limited to 300 entries.
+     * @return a {@link Cache} instance for managing {@code String -> String} mappings.
+     */
+    @Bean
+    public Cache<String, String> keywordPromptCache() {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .maximumSize(300)
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing ChatGPT responses to repeated requests.
+     * The cache has the following characteristics:
+     *     Entries expire at the end of the day they were created for, since relative
+     *     dates in the responses are only valid on that day.
+     *     Maximum size is limited to 1000 entries.
+     *     Statistics are recorded for the administrator's /stats command.
+     * @return a {@link Cache} instance for managing {@code GptResponseKey -> String} mappings.
+     */
+    @Bean
+    public Cache<GptResponseKey, String> gptResponseCache() {
+        return Caffeine.newBuilder()
+                .expireAfter(new Expiry<GptResponseKey, String>() {
+                    @Override
+                    public long expireAfterCreate(GptResponseKey key, String response, long currentTime) {
+                        Duration untilMidnight = Duration.between(LocalDateTime.now(),
+                                key.day().plusDays(1).atStartOfDay());
+                        return Math.max(0, untilMidnight.toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(GptResponseKey key, String response, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(GptResponseKey key, String response, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .maximumSize(1000)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Creates a cache for storing the open cursors of paginated search results.
+     * The cache has the following characteristics:
+     *     Entries expire after the configured time after last access; the buttons of
+     *     older results answer that the search has to be repeated.
+     *     Maximum size is limited to 1000 entries.
+     *     Removed cursors are closed, which cancels their pending page requests.
+     * @param telegramProperties the application properties.
+     * @return a {@link Cache} instance for managing {@code String -> SearchCursor} mappings.
+     */
+    @Bean
+    public Cache<String, SearchCursor> searchCursorCache(TelegramProperties telegramProperties) {
+        return Caffeine.newBuilder()
+                .expireAfterAccess(telegramProperties.getSearchCursorTtlMinutes(), TimeUnit.MINUTES)
+                .maximumSize(1000)
+                .<String, SearchCursor>removalListener((id, cursor, cause) -> {
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                })
+                .build();
+    }
 }
@@ -26,18 +26,11 @@ public final class Constants {
     public static final String BUTTON_DEFAULT_KEYWORD = "default_keyword";
     public static final String BUTTON_COMPOUND_KEYWORDS = "compound_keywords";
     public static final String BUTTON_CLEAR_ALL_KEYWORDS = "clear_all_keywords";
+    public static final String BUTTON_ALL_CALENDARS = "all_calendars";
     public static final String BUTTON_SUBMIT = "request_access";
+    public static final String BUTTON_SEARCH_PAGE = "Search/";
 
-    public static final String REQUEST_ANALYTICS = "analytics";
-    public static final String REQUEST_SEARCH = "search";
-    public static final String REQUEST_AUTHORIZATION = "Authorization";
-    public static final String REQUEST_SET_CALENDAR = "setCalendar";
     public static final String REQUEST_SET_SETTING = "setting";
-    public static final String REQUEST_COMPOUND_KEYWORDS = "compound_keywords";
-    public static final String REQUEST_DEFAULT_KEYWORDS = "default_keyword";
-    public static final String REQUEST_KEYWORDS = "keywords";
-    public static final String REQUEST_SUBMIT = "submit";
-    public static final String STATE = "_state";
     public static final String SUMBIT = "_submit";
 
     public static final String BD_FIELD_CALENDAR = "_calendar";
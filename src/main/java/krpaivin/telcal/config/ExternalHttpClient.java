@@ -0,0 +1,200 @@
+package krpaivin.telcal.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * HTTP client shared by all REST calls to external services (OpenAI, AssemblyAI and
+ * Telegram file downloads).
+ *
+ * One {@link HttpClient} is used for the whole application: it negotiates HTTP/2 where
+ * the server supports it and keeps connections alive, so DNS, TCP and TLS setup are
+ * paid once per host instead of once per request. Every endpoint has its own request
+ * timeout; text responses are requested gzip-compressed and decoded here.
+ *
+ * The JDK client does not expose its connection pool, so the statistics count requests,
+ * the HTTP versions actually used and the latency per endpoint instead.
+ */
+@Component
+public class ExternalHttpClient implements StatsSource {
+    private static final String GZIP = "gzip";
+
+    private final HttpClient client;
+    private final Map<Endpoint, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final TelegramProperties telegramProperties;
+
+    /**
+     * The external services called by the bot, each with its own timeout.
+     */
+    public enum Endpoint {
+        OPENAI, ASSEMBLYAI_UPLOAD, TELEGRAM_FILE
+    }
+
+    /**
+     * Text response of an external service.
+     *
+     * @param statusCode the HTTP status code.
+     * @param body       the decoded response body.
+     */
+    public record TextResponse(int statusCode, String body) {
+    }
+
+    public ExternalHttpClient(TelegramProperties telegramProperties) {
+        this.telegramProperties = telegramProperties;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(telegramProperties.getHttpConnectTimeoutSeconds()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Sends a request and returns the response body as text, decompressing it if the
+     * server sent it gzip-encoded.
+     *
+     * @param endpoint the called service, selecting the timeout.
+     * @param request  the request to send; the timeout and Accept-Encoding are set here.
+     * @return a future completed with the response, whatever its status code.
+     */
+    public CompletableFuture<TextResponse> sendAsync(Endpoint endpoint, HttpRequest.Builder request) {
+        HttpRequest httpRequest = request.timeout(timeoutOf(endpoint)).header("Accept-Encoding", GZIP).build();
+        return execute(endpoint, httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> new TextResponse(response.statusCode(), decode(response)));
+    }
+
+    /**
+     * Sends a request and returns the response body as a stream, for binary content
+     * that is passed on without being held in memory.
+     *
+     * @param endpoint the called service, selecting the timeout.
+     * @param request  the request to send; the timeout is set here.
+     * @return a future completed with the response, whatever its status code; the
+     *         caller must close the body.
+     */
+    public CompletableFuture<HttpResponse<InputStream>> sendStreamAsync(Endpoint endpoint,
+            HttpRequest.Builder request) {
+        return execute(endpoint, request.timeout(timeoutOf(endpoint)).build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Sends a request and waits for the text response, see {@link #sendAsync}.
+     *
+     * @param endpoint the called service, selecting the timeout.
+     * @param request  the request to send.
+     * @return the response, whatever its status code.
+     * @throws IOException if the request fails or times out.
+     */
+    public TextResponse send(Endpoint endpoint, HttpRequest.Builder request) throws IOException {
+        return await(sendAsync(endpoint, request));
+    }
+
+    /**
+     * Sends a request and waits for the streamed response, see {@link #sendStreamAsync}.
+     *
+     * @param endpoint the called service, selecting the timeout.
+     * @param request  the request to send.
+     * @return the response, whatever its status code; the caller must close the body.
+     * @throws IOException if the request fails or times out.
+     */
+    public HttpResponse<InputStream> sendStream(Endpoint endpoint, HttpRequest.Builder request) throws IOException {
+        return await(sendStreamAsync(endpoint, request));
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> execute(Endpoint endpoint, HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler) {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, e -> new EndpointStats());
+        long start = System.nanoTime();
+        endpointStats.inFlight.incrementAndGet();
+        return client.sendAsync(request, bodyHandler)
+                .whenComplete((response, error) -> {
+                    endpointStats.inFlight.decrementAndGet();
+                    endpointStats.totalNanos.add(System.nanoTime() - start);
+                    if (error != null) {
+                        endpointStats.failures.increment();
+                    } else if (response.version() == HttpClient.Version.HTTP_2) {
+                        endpointStats.http2.increment();
+                    } else {
+                        endpointStats.http1.increment();
+                    }
+                });
+    }
+
+    private Duration timeoutOf(Endpoint endpoint) {
+        return Duration.ofSeconds(switch (endpoint) {
+            case OPENAI -> telegramProperties.getOpenAITimeoutSeconds();
+            case ASSEMBLYAI_UPLOAD -> telegramProperties.getAssemblyAIUploadTimeoutSeconds();
+            case TELEGRAM_FILE -> telegramProperties.getTelegramFileTimeoutSeconds();
+        });
+    }
+
+    private String decode(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        if (!response.headers().firstValue("Content-Encoding").map(GZIP::equalsIgnoreCase).orElse(false)) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked
+                    ? unchecked.getCause()
+                    : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause);
+        } catch (CancellationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public String getStats() {
+        StringBuilder result = new StringBuilder("External HTTP:");
+        for (Endpoint endpoint : Endpoint.values()) {
+            EndpointStats endpointStats = stats.get(endpoint);
+            if (endpointStats == null) {
+                continue;
+            }
+            long completed = endpointStats.http2.sum() + endpointStats.http1.sum() + endpointStats.failures.sum();
+            long averageMillis = completed == 0 ? 0 : endpointStats.totalNanos.sum() / completed / 1_000_000;
+            result.append(String.format("%n%s: %d HTTP/2, %d HTTP/1.1, %d failed, %d in flight, avg %d ms",
+                    endpoint, endpointStats.http2.sum(), endpointStats.http1.sum(), endpointStats.failures.sum(),
+                    endpointStats.inFlight.get(), averageMillis));
+        }
+        return result.toString();
+    }
+
+    private static class EndpointStats {
+        private final LongAdder http2 = new LongAdder();
+        private final LongAdder http1 = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+    }
+}
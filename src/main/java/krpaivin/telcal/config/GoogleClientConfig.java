@@ -0,0 +1,85 @@
+package krpaivin.telcal.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+
+/**
+ * Configuration of the HTTP transport shared by all Google API clients.
+ *
+ * One transport with a connection pool is used for the whole application, so TLS
+ * sessions and keep-alive connections to Google are reused between requests.
+ */
+@Configuration
+public class GoogleClientConfig {
+    private static final int MAX_CONNECTIONS = 100;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Creates the pooled HTTP transport for Google APIs.
+     * The pool has the following characteristics:
+     *     Up to 100 connections in total and 20 connections per host.
+     *     Connections idle for more than 60 seconds are closed.
+     * @return the shared {@link HttpTransport}, shut down with the application context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public HttpTransport googleHttpTransport() {
+        return new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+                .setMaxConnTotal(MAX_CONNECTIONS)
+                .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build());
+    }
+
+    /**
+     * Creates the executor loading the next page of a calendar query in the background.
+     * Threads are created on demand up to the configured limit, when all of them are
+     * busy the page is loaded by the calling thread instead.
+     *
+     * @param telegramProperties the application properties.
+     * @return the prefetch executor, shut down with the application context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService calendarPrefetchExecutor(TelegramProperties telegramProperties) {
+        return new ThreadPoolExecutor(0, telegramProperties.getCalendarPrefetchThreads(),
+                IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                ThreadFactories.daemonThreadFactory("calendar-prefetch"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Creates the executor querying the calendars of a user in parallel in the all
+     * calendars mode. The number of threads bounds the number of concurrent queries.
+     *
+     * @param telegramProperties the application properties.
+     * @return the fan-out executor, shut down with the application context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService calendarFanOutExecutor(TelegramProperties telegramProperties) {
+        return Executors.newFixedThreadPool(telegramProperties.getCalendarFanOutThreads(),
+                ThreadFactories.daemonThreadFactory("calendar-fan-out"));
+    }
+
+    /**
+     * Creates the executor fetching the month shards of a long analytics range in
+     * parallel. A shard in the all calendars mode fans out further on the fan-out
+     * executor, so the two pools are separate.
+     *
+     * @param telegramProperties the application properties.
+     * @return the shard executor, shut down with the application context.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService analyticsShardExecutor(TelegramProperties telegramProperties) {
+        return Executors.newFixedThreadPool(telegramProperties.getAnalyticsShardThreads(),
+                ThreadFactories.daemonThreadFactory("analytics-shard"));
+    }
+}
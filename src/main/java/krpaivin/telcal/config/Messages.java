@@ -18,14 +18,20 @@ public class Messages {
     public static final String BUTTON_DEFAULT_KEYWORD = "Default keyword";
     public static final String BUTTON_COMP_KEYWORDS = "Compound keywords";
     public static final String BUTTON_CLEAR_KEYWORDS = "Clear all keywords";
+    public static final String BUTTON_ALL_CALENDARS = "All calendars on/off";
     public static final String BUTTON_SUBMIT = "Request Access (Processing Time Required)";
+    public static final String BUTTON_PREVIOUS_PAGE = "< Previous";
+    public static final String BUTTON_NEXT_PAGE = "Next >";
 
     public static final String ANALYTICS = "/analytics";
     public static final String SEARCH = "/search";
+    public static final String FREE = "/free";
     public static final String HELP = "/help";
     public static final String START = "/start";
     public static final String SETTING = "/setting";
     public static final String SUMBIT_RESPONSE = "/submit_response";
+    public static final String STATS = "/stats";
+    public static final String NO_STATS = "No statistics available.";
 
     public static final String OPERATION_CANCEL = "Operation canceled";
     public static final String REQUEST = "Your request: ";
@@ -36,10 +42,16 @@ public class Messages {
     public static final String SELECT_CALENDAR = "Select a calendar:";
     public static final String FOLLOW_LINK = "Follow the link, copy the code and send it to the bot";
     public static final String EVENT_CREATED = "Event created in Google Calendar.";
+    public static final String EVENTS_CREATED = "Events created in Google Calendar: ";
+    public static final String EVENT_NOT_CREATED = "Not created: ";
     public static final String SEND_YOUR_GMAIL_ADDRESS = "Send your Gmail address:";
 
     public static final String REQUEST_ANALYTICST = "Send message with period and keyword (optional)";
     public static final String REQUEST_SEARCH = "Send message with period, keyword (optional) and type search (optional).";
+    public static final String REQUEST_FREE_TIME = "Send message with period and duration of the meeting (optional).";
+    public static final String FREE_TIME = "Free time:";
+    public static final String NO_FREE_TIME = "No free time found in this period.";
+    public static final String SEARCH_EXPIRED = "These search results have expired. Please repeat the search.";
     public static final String REQUEST_COMP_KEYWORDS = "Enter keywords to compound. Groups of words are separated by commas." +
                 "For example: \"Partner1 Partner2, My family\" means that the words \"Partner1 Partner2\" will be counted " +
                 "as one keyword and \"My family\" will be counted as one (other) keyword.";
@@ -56,11 +68,14 @@ public class Messages {
     public static final String DEFAULT_KEYWORD_SUCCESS = "Default keyword access has been successfully configured.";
     public static final String KEYWORDS_SUCCESS = "Keywords access has been successfully configured.";
     public static final String KEYWORDS_CLEANED = "All keywords were successfully cleaned.";
+    public static final String ALL_CALENDARS_ON = "Search and analytics now use all your calendars.";
+    public static final String ALL_CALENDARS_OFF = "Search and analytics now use the selected calendar only.";
     public static final String ACCESS_SUCCESSFUL = "Access has been successfully granted.";
     public static final String ACCESS_DENIED = "Access has been denied.";
 
     public static final String ERROR = "Error";
     public static final String ERROR_CREATING_EVENT = "Error creating event in calendar.";
+    public static final String ERROR_CALENDAR_UNAVAILABLE = "Google Calendar is temporarily unavailable. Please try again in a minute.";
     public static final String ERROR_RECEIVING_AUDIO = "Error receiving audio file from telegram.";
     public static final String ERROR_PROCESSING_VOICE = "Error processing voice message.";
     public static final String ERROR_SAVING_CALENDAR = "Error saving calendar data.";
@@ -68,9 +83,11 @@ public class Messages {
     public static final String ERROR_DEFAULT_KEYWORD = "Error saving default keyword data.";
     public static final String ERROR_KEYWORDS = "Error saving keywords data.";
     public static final String ERROR_CLEANING_KEYWORDS = "Error cleaning keywords.";
+    public static final String ERROR_ALL_CALENDARS = "Error saving calendar mode.";
     public static final String ERROR_AUTHORIZATION = "Error retrieving authorization data.";
     public static final String ERROR_COLL_ANALYTICS = "Error collecting analytics.";
     public static final String ERROR_SEARCHING = "Error searching events.";
+    public static final String ERROR_FINDING_FREE_TIME = "Error finding free time.";
     public static final String ERROR_CREATING = "Error creating event.";
     public static final String ERROR_ACCESS_CREDETIALS = "Error accessing calendar credentials";
     public static final String ERROR_JSON_GPT = "Error processing JSON response from ChatGPT.";
@@ -0,0 +1,14 @@
+package krpaivin.telcal.config;
+
+/**
+ * Component reporting runtime statistics for the administrator's {@code /stats} command.
+ */
+public interface StatsSource {
+
+    /**
+     * Returns a short human-readable report of the current statistics.
+     *
+     * @return the report, one or more lines.
+     */
+    String getStats();
+}
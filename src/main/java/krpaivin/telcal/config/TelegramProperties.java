@@ -17,4 +17,46 @@ public class TelegramProperties {
     private String maintenanceMode;
     private String userOneId;
     private String adminChatid;
+    private int updateWorkerThreads = 16;
+    private int maxPendingUpdates = 1000;
+    private String updateMode = "polling";
+    private String webhookUrl;
+    private String webhookSecret;
+    private int webhookPort = 8080;
+    private String webhookPath = "/telegram/webhook";
+    private double outboundGlobalRate = 30;
+    private double outboundChatRate = 1;
+    private double outboundChatBurst = 3;
+    private int outboundSenderThreads = 8;
+    private int calendarPageSize = 250;
+    private int calendarPrefetchThreads = 16;
+    private int calendarFanOutThreads = 8;
+    private boolean eventMirrorEnabled = true;
+    private long eventMirrorSyncIntervalSeconds = 60;
+    private long analyticsCacheTtlSeconds = 600;
+    private int analyticsShardThreads = 12;
+    private long analyticsShardCacheTtlHours = 24;
+    private long tokenRefreshAheadSeconds = 300;
+    private long tokenRefreshCheckSeconds = 60;
+    private int calendarMaxAttempts = 4;
+    private int calendarBackoffInitialMillis = 500;
+    private int calendarBackoffMaxMillis = 8000;
+    private int calendarBackoffMaxElapsedMillis = 20000;
+    private int calendarBreakerFailureThreshold = 5;
+    private long calendarBreakerOpenSeconds = 30;
+    private String workingHoursStart = "09:00";
+    private String workingHoursEnd = "18:00";
+    private boolean workingDaysOnly = true;
+    private int freeSlotMinMinutes = 30;
+    private int freeTimeMaxDays = 31;
+    private int searchPageSize = 10;
+    private long searchCursorTtlMinutes = 15;
+    private int httpConnectTimeoutSeconds = 10;
+    private int openAITimeoutSeconds = 60;
+    private int assemblyAIUploadTimeoutSeconds = 120;
+    private int telegramFileTimeoutSeconds = 60;
+
+    public boolean isWebhookMode() {
+        return "webhook".equalsIgnoreCase(updateMode);
+    }
 }
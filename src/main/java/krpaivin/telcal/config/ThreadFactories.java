@@ -0,0 +1,29 @@
+package krpaivin.telcal.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories of the background executors.
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {}
+
+    /**
+     * Creates a factory of daemon threads named after their pool and numbered from 1,
+     * e.g. "update-worker-3", so background pools never keep the application from
+     * shutting down.
+     *
+     * @param prefix the name of the pool, followed by "-" and the thread number.
+     * @return the thread factory.
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
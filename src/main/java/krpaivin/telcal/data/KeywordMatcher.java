@@ -0,0 +1,167 @@
+package krpaivin.telcal.data;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * Finds which of the keywords of a user occur in a text, ignoring case.
+ *
+ * The keywords are compiled once into an Aho-Corasick automaton, so a text is matched
+ * against all of them in a single pass over its characters, whatever the number of
+ * keywords. The transitions are precomputed into a table over the characters of the
+ * keywords; any other character leads back to the root. A compiled matcher is
+ * immutable and can be shared between threads.
+ */
+public class KeywordMatcher {
+    private static final KeywordMatcher EMPTY = compile(List.of());
+
+    private final List<String> keywords;
+    private final char[] alphabet;
+    private final int[] transitions;
+    private final int[][] outputs;
+
+    private KeywordMatcher(List<String> keywords, char[] alphabet, int[] transitions, int[][] outputs) {
+        this.keywords = keywords;
+        this.alphabet = alphabet;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Compiles the keywords and compound keywords of a user, both comma-separated as
+     * stored in {@link krpaivin.telcal.entity.UserData}.
+     *
+     * @param keywords         the keywords, may be null.
+     * @param compoundKeywords the compound keywords, may be null.
+     * @return the matcher of the distinct non-empty keywords, in the order they were entered.
+     */
+    public static KeywordMatcher of(String keywords, String compoundKeywords) {
+        String all = (keywords == null ? "" : keywords) + "," + (compoundKeywords == null ? "" : compoundKeywords);
+        List<String> distinct = Arrays.stream(all.split(","))
+                .map(keyword -> keyword.trim().toLowerCase(Locale.ROOT))
+                .filter(keyword -> !keyword.isEmpty())
+                .distinct()
+                .toList();
+        return distinct.isEmpty() ? EMPTY : compile(distinct);
+    }
+
+    /**
+     * Builds the automaton: a trie of the keywords, then failure links computed breadth
+     * first and folded into a complete transition table.
+     *
+     * @param keywords the distinct keywords in lower case.
+     * @return the matcher.
+     */
+    static KeywordMatcher compile(List<String> keywords) {
+        TreeSet<Character> chars = new TreeSet<>();
+        keywords.forEach(keyword -> keyword.chars().forEach(c -> chars.add((char) c)));
+        char[] alphabet = new char[chars.size()];
+        int column = 0;
+        for (char c : chars) {
+            alphabet[column++] = c;
+        }
+
+        List<Map<Integer, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> outputs = new ArrayList<>();
+        trie.add(new HashMap<>());
+        outputs.add(new ArrayList<>());
+        for (int k = 0; k < keywords.size(); k++) {
+            int state = 0;
+            for (char c : keywords.get(k).toCharArray()) {
+                int symbol = Arrays.binarySearch(alphabet, c);
+                Integer next = trie.get(state).get(symbol);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(symbol, next);
+                    trie.add(new HashMap<>());
+                    outputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            outputs.get(state).add(k);
+        }
+
+        int width = alphabet.length;
+        int[] transitions = new int[trie.size() * width];
+        int[] failure = new int[trie.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < width; symbol++) {
+            Integer child = trie.get(0).get(symbol);
+            if (child != null) {
+                transitions[symbol] = child;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs.get(state).addAll(outputs.get(failure[state]));
+            for (int symbol = 0; symbol < width; symbol++) {
+                Integer child = trie.get(state).get(symbol);
+                int fallback = transitions[failure[state] * width + symbol];
+                if (child == null) {
+                    transitions[state * width + symbol] = fallback;
+                } else {
+                    transitions[state * width + symbol] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+                }
+            }
+        }
+
+        int[][] compiledOutputs = new int[outputs.size()][];
+        for (int state = 0; state < outputs.size(); state++) {
+            compiledOutputs[state] = outputs.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new KeywordMatcher(List.copyOf(keywords), alphabet, transitions, compiledOutputs);
+    }
+
+    /**
+     * Returns the keywords, in lower case, indexed as reported by {@link #match}.
+     *
+     * @return the keywords.
+     */
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * Finds the keywords occurring in the text.
+     *
+     * @param text    the text to search, may be null.
+     * @param matched receives the indexes of the keywords found, each at most once; must
+     *                have room for all keywords.
+     * @return the number of keywords found.
+     */
+    public int match(CharSequence text, int[] matched) {
+        if (text == null || keywords.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int symbol = Arrays.binarySearch(alphabet, Character.toLowerCase(text.charAt(i)));
+            state = symbol < 0 ? 0 : transitions[state * alphabet.length + symbol];
+            for (int keyword : outputs[state]) {
+                count = addOnce(matched, count, keyword);
+            }
+        }
+        return count;
+    }
+
+    private static int addOnce(int[] matched, int count, int keyword) {
+        for (int i = 0; i < count; i++) {
+            if (matched[i] == keyword) {
+                return count;
+            }
+        }
+        matched[count] = keyword;
+        return count + 1;
+    }
+}
@@ -25,6 +25,8 @@ public class UserAuthData {
 
     private final UserDataService userDataService;
     private final Cache<String, UserData> userCache;
+    private final Cache<String, KeywordMatcher> keywordMatcherCache;
+    private final Cache<String, String> keywordPromptCache;
 
     /**
      * Updates the user data for a specified user ID by applying a given update function.
@@ -47,6 +49,21 @@ public class UserAuthData {
         return res;
     }
 
+    /**
+     * Updates the keywords of a specified user and drops the compiled matcher and the
+     * prompt keyword block of the previous keywords.
+     *
+     * @param userId  the ID of the user whose keywords will be updated.
+     * @param updater a {@link UnaryOperator} to modify the {@link UserData} object.
+     * @return {@code true} if the update was successful, otherwise {@code false}.
+     */
+    private boolean updateKeywords(String userId, UnaryOperator<UserData> updater) {
+        boolean res = updateUserData(userId, updater);
+        keywordMatcherCache.invalidate(userId);
+        keywordPromptCache.invalidate(userId);
+        return res;
+    }
+
     /**
      * Saves the access and refresh tokens along with their expiration time for a specified user.
      *
@@ -85,7 +102,7 @@ public class UserAuthData {
      * @return {@code true} if the keywords were successfully saved, otherwise {@code false}.
      */
     public boolean saveKeywords(String userId, String messageText) {
-        return updateUserData(userId, userData -> {
+        return updateKeywords(userId, userData -> {
             userData.setKeywords(messageText.strip());
             return userData;
         });
@@ -99,7 +116,7 @@ public class UserAuthData {
      * @return {@code true} if the default keyword was successfully saved, otherwise {@code false}.
      */
     public boolean saveDefaultKeywords(String userId, String messageText) {
-        return updateUserData(userId, userData -> {
+        return updateKeywords(userId, userData -> {
             userData.setDefaultKeyword(messageText.strip());
             return userData;
         });
@@ -113,12 +130,26 @@ public class UserAuthData {
      * @return {@code true} if the compound keywords were successfully saved, otherwise {@code false}.
      */
     public boolean saveCompoundKeywords(String userId, String messageText) {
-        return updateUserData(userId, userData -> {
+        return updateKeywords(userId, userData -> {
             userData.setCompoundKeywords(messageText.strip());
             return userData;
         });
     }
 
+    /**
+     * Saves whether search and analytics use all calendars of a specified user.
+     *
+     * @param userId       the ID of the user.
+     * @param allCalendars {@code true} to use all calendars, {@code false} to use the selected one.
+     * @return {@code true} if the setting was successfully saved, otherwise {@code false}.
+     */
+    public boolean saveAllCalendarsMode(String userId, boolean allCalendars) {
+        return updateUserData(userId, userData -> {
+            userData.setAllCalendars(allCalendars);
+            return userData;
+        });
+    }
+
     /**
      * Retrieves a map containing user credentials and related data from the database or cache.
      *
@@ -229,6 +260,28 @@ public class UserAuthData {
         return getFieldFromCache(userId, UserData::getCompoundKeywords, "");
     }
 
+    /**
+     * Returns the compiled matcher of the keywords and compound keywords of a specified
+     * user. The matcher is compiled once and reused until the keywords change.
+     *
+     * @param userId the ID of the user.
+     * @return the matcher, without keywords if the user has none.
+     */
+    public KeywordMatcher getKeywordMatcher(String userId) {
+        return keywordMatcherCache.get(userId,
+                id -> KeywordMatcher.of(getKeywords(id), getCompoundKeywords(id)));
+    }
+
+    /**
+     * Checks whether search and analytics use all calendars of a specified user.
+     *
+     * @param userId the ID of the user.
+     * @return {@code true} if all calendars are used, otherwise {@code false}.
+     */
+    public boolean isAllCalendarsMode(String userId) {
+        return Boolean.TRUE.equals(getFieldFromCache(userId, UserData::getAllCalendars, false));
+    }
+
     /**
      * Clears all keywords (default, compound, and regular) for a specified user.
      *
@@ -236,7 +289,7 @@ public class UserAuthData {
      * @return {@code true} if the operation was successful, otherwise {@code false}.
      */
     public boolean clearAllKeywords(String userId) {
-        return updateUserData(userId, userData -> {
+        return updateKeywords(userId, userData -> {
             userData.setCompoundKeywords(null);
             userData.setDefaultKeyword(null);
             userData.setKeywords(null);
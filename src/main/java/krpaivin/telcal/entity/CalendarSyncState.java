@@ -0,0 +1,35 @@
+package krpaivin.telcal.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "calendar_sync_state",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "calendar_id" }))
+public class CalendarSyncState {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "calendar_id", nullable = false)
+    private String calendarId;
+
+    @Column(name = "sync_token", nullable = false)
+    private String syncToken;
+
+    @Column(name = "synced_at", nullable = false)
+    private long syncedAt;
+}
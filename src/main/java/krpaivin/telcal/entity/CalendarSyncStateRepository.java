@@ -0,0 +1,20 @@
+package krpaivin.telcal.entity;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface CalendarSyncStateRepository extends JpaRepository<CalendarSyncState, Long> {
+    Optional<CalendarSyncState> findByUserIdAndCalendarId(String userId, String calendarId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from CalendarSyncState s where s.userId = :userId and s.calendarId = :calendarId")
+    void deleteByCalendar(@Param("userId") String userId, @Param("calendarId") String calendarId);
+}
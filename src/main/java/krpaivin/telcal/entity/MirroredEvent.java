@@ -0,0 +1,58 @@
+package krpaivin.telcal.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+@Entity
+@Table(name = "mirrored_event",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "user_id", "calendar_id", "event_id" }),
+        indexes = @Index(name = "idx_mirrored_event_range", columnList = "user_id, calendar_id, start_time"))
+public class MirroredEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "calendar_id", nullable = false)
+    private String calendarId;
+
+    @Column(name = "event_id", nullable = false)
+    private String eventId;
+
+    @Column(name = "ical_uid")
+    private String iCalUid;
+
+    @Column(name = "summary")
+    private String summary;
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "location")
+    private String location;
+
+    @Column(name = "start_time", nullable = false)
+    private long startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private long endTime;
+
+    @Column(name = "time_zone_shift")
+    private Integer timeZoneShift;
+
+    @Column(name = "all_day", nullable = false)
+    private boolean allDay;
+}
@@ -0,0 +1,42 @@
+package krpaivin.telcal.entity;
+
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MirroredEventRepository extends JpaRepository<MirroredEvent, Long> {
+    Optional<MirroredEvent> findByUserIdAndCalendarIdAndEventId(String userId, String calendarId, String eventId);
+
+    /**
+     * Finds the events overlapping the time range whose summary, description or location
+     * contains the pattern, ordered by start time.
+     */
+    @Query("select e from MirroredEvent e where e.userId = :userId and e.calendarId = :calendarId"
+            + " and e.startTime < :to and e.endTime > :from"
+            + " and (lower(coalesce(e.summary, '')) like :pattern escape '\\'"
+            + " or lower(coalesce(e.description, '')) like :pattern escape '\\'"
+            + " or lower(coalesce(e.location, '')) like :pattern escape '\\')"
+            + " order by e.startTime, e.id")
+    Slice<MirroredEvent> findInRange(@Param("userId") String userId, @Param("calendarId") String calendarId,
+            @Param("from") long from, @Param("to") long to, @Param("pattern") String pattern, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("delete from MirroredEvent e where e.userId = :userId and e.calendarId = :calendarId"
+            + " and e.eventId = :eventId")
+    void deleteEvent(@Param("userId") String userId, @Param("calendarId") String calendarId,
+            @Param("eventId") String eventId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from MirroredEvent e where e.userId = :userId and e.calendarId = :calendarId")
+    void deleteCalendar(@Param("userId") String userId, @Param("calendarId") String calendarId);
+}
@@ -44,6 +44,9 @@ public class UserData {
     @Column(name = "compound_keywords")
     private String compoundKeywords;
 
+    @Column(name = "all_calendars")
+    private Boolean allCalendars;
+
     @Version
     private Long version;
 }
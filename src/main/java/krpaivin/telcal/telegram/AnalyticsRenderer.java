@@ -0,0 +1,85 @@
+package krpaivin.telcal.telegram;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import krpaivin.telcal.calendar.AnalyticsReport;
+import krpaivin.telcal.calendar.AnalyticsReport.Bucket;
+import krpaivin.telcal.config.Constants;
+
+/**
+ * Renders an {@link AnalyticsReport} as the text of a chat message.
+ *
+ * A range within one month is broken down by day, up to three months by week and longer
+ * ranges by month, so the message stays readable whatever the range.
+ */
+public class AnalyticsRenderer {
+    private static final int MAX_MONTHS_BY_WEEK = 3;
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter
+            .ofPattern(Constants.DATE_TIME_PATTERN);
+
+    private AnalyticsRenderer() {}
+
+    /**
+     * Renders the report.
+     *
+     * @param report the analytics report.
+     * @return the message text.
+     */
+    public static String render(AnalyticsReport report) {
+        StringBuilder result = new StringBuilder("Amount events: ").append(report.eventCount()).append(".\n")
+                .append("All time: ").append(formatMinutes(report.totalMinutes()));
+        if (report.eventCount() == 0) {
+            return result.toString();
+        }
+
+        result.append("\nAverage: ").append(formatMinutes(report.averageMinutes()));
+        AnalyticsReport.LongestEvent longest = report.longest();
+        result.append("\nLongest: ").append(formatMinutes(longest.minutes())).append(", ")
+                .append(longest.start().format(DATE_TIME_FORMATTER));
+        if (longest.summary() != null) {
+            result.append(' ').append(longest.summary());
+        }
+
+        appendBuckets(result, "By keyword", withEvents(report.keywords()));
+        appendBuckets(result, "By weekday", withEvents(report.weekdays()));
+
+        int months = report.months().size();
+        if (months > MAX_MONTHS_BY_WEEK) {
+            appendBuckets(result, "By month", report.months());
+        } else if (months > 1) {
+            appendBuckets(result, "By week", report.weeks());
+        } else {
+            appendBuckets(result, "By day", report.days());
+        }
+        return result.toString();
+    }
+
+    private static List<Bucket> withEvents(List<Bucket> buckets) {
+        return buckets.stream().filter(bucket -> bucket.events() > 0).toList();
+    }
+
+    private static void appendBuckets(StringBuilder result, String title, List<Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        result.append("\n\n").append(title).append(':');
+        for (Bucket bucket : buckets) {
+            result.append('\n').append(bucket.label()).append(": ").append(bucket.events()).append(" events, ")
+                    .append(formatMinutes(bucket.minutes()));
+        }
+    }
+
+    /**
+     * Formats a duration as hours and minutes, e.g. "2 h 15 min".
+     *
+     * @param minutes the duration in minutes.
+     * @return the formatted duration.
+     */
+    static String formatMinutes(long minutes) {
+        if (minutes < 60) {
+            return minutes + " min";
+        }
+        return minutes % 60 == 0 ? minutes / 60 + " h" : minutes / 60 + " h " + minutes % 60 + " min";
+    }
+}
@@ -4,17 +4,24 @@ import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.springframework.stereotype.Component;
 import com.github.benmanes.caffeine.cache.Cache;
 import lombok.RequiredArgsConstructor;
 
+import krpaivin.telcal.calendar.CircuitOpenException;
 import krpaivin.telcal.calendar.GoogleCalendarService;
+import krpaivin.telcal.calendar.InsertResult;
+import krpaivin.telcal.calendar.NewEvent;
+import krpaivin.telcal.calendar.SearchPage;
 import krpaivin.telcal.calendar.SearchType;
 import krpaivin.telcal.chatgpt.ChatGPTHadler;
 import krpaivin.telcal.chatgpt.TypeGPTRequest;
 import krpaivin.telcal.config.Constants;
 import krpaivin.telcal.config.Messages;
+import krpaivin.telcal.config.TelegramProperties;
 
 /**
  * Service class for interacting with Google Calendar to process analytics, search for events,
@@ -23,9 +30,11 @@ import krpaivin.telcal.config.Messages;
 @RequiredArgsConstructor
 @Component
 public class CalendarDataService {
-    private final Cache<String, String> sessionDataCache;
+    private final Cache<Long, ChatSession> chatSessionCache;
     private final GoogleCalendarService googleCalendarService;
     private final ChatGPTHadler chatGPTHadler;
+    private final TelegramProperties telegramProperties;
+    private final LocalCommandParser localCommandParser;
 
     /**
      * Retrieves analytics data from Google Calendar based on the specified date range and keyword.
@@ -43,9 +52,12 @@ public class CalendarDataService {
         LocalDateTime startDateTime = LocalDateTime.parse(startDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
         LocalDateTime endDateTime = LocalDateTime.parse(endDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
 
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        finishRequest(chatId);
         try {
-            res = googleCalendarService.analyticsEventsByKeyword(startDateTime, endDateTime, keyword, userId);
+            res = AnalyticsRenderer.render(
+                    googleCalendarService.analyticsEventsByKeyword(startDateTime, endDateTime, keyword, userId));
+        } catch (CircuitOpenException e) {
+            res = Messages.ERROR_CALENDAR_UNAVAILABLE;
         } catch (Exception e) {
             res = Messages.ERROR_COLL_ANALYTICS;
         }
@@ -61,20 +73,75 @@ public class CalendarDataService {
      * @param keyword          the keyword to filter events.
      * @param chatId          the chat ID for session management.
      * @param userId          the user ID to identify the user making the request.
-     * @return a string containing the search results.
+     * @return the first page of the search results.
      * @throws GeneralSecurityException if there is an issue with security while accessing Google Calendar.
      * @throws IOException if an input or output error occurs during the request.
      */
-    protected String getFoundEventFromCalendar(String startDate, String endDate, String searchTypeString, String keyword,
+    protected SearchPage getFoundEventFromCalendar(String startDate, String endDate, String searchTypeString, String keyword,
             String chatId, String userId) throws GeneralSecurityException, IOException {
         LocalDateTime startDateTime = LocalDateTime.parse(startDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
         LocalDateTime endDateTime = LocalDateTime.parse(endDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
         SearchType searchType = getSearchTypeFromStr(searchTypeString);
 
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        finishRequest(chatId);
         return googleCalendarService.searchEventInCalendar(startDateTime, endDateTime, keyword, searchType, userId);
     }
 
+    /**
+     * Returns another page of search results when the user presses a navigation button.
+     *
+     * @param cursorId the ID of the search cursor from the callback data.
+     * @param index    the index of the requested page.
+     * @param userId   the user ID to identify the user making the request.
+     * @return the page, or null if the search has expired.
+     * @throws IOException if an input or output error occurs during the request.
+     */
+    protected SearchPage getSearchPage(String cursorId, int index, String userId) throws IOException {
+        return googleCalendarService.getSearchPage(cursorId, index, userId);
+    }
+
+    /**
+     * Finds free time in the user's calendars within the specified date range.
+     *
+     * @param startDate the start of the period in "yyyy-MM-dd HH:mm" format.
+     * @param endDate   the end of the period in "yyyy-MM-dd HH:mm" format.
+     * @param duration  the duration of the meeting in minutes, empty for the configured minimum.
+     * @param chatId    the chat ID for session management.
+     * @param userId    the user ID to identify the user making the request.
+     * @return a string containing the free slots or an error message if an exception occurs.
+     */
+    protected String getFreeTimeFromCalendar(String startDate, String endDate, String duration, String chatId,
+            String userId) {
+        String res = "";
+        LocalDateTime startDateTime = LocalDateTime.parse(startDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
+        LocalDateTime endDateTime = LocalDateTime.parse(endDate, DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
+        int minMinutes = duration == null || duration.isEmpty()
+                ? telegramProperties.getFreeSlotMinMinutes()
+                : Integer.parseInt(duration);
+
+        finishRequest(chatId);
+        try {
+            res = googleCalendarService.findFreeTime(startDateTime, endDateTime, minMinutes, userId);
+        } catch (CircuitOpenException e) {
+            res = Messages.ERROR_CALENDAR_UNAVAILABLE;
+        } catch (Exception e) {
+            res = Messages.ERROR_FINDING_FREE_TIME;
+        }
+        return res;
+    }
+
+    /**
+     * Returns the chat session to the idle state after a request has been answered.
+     *
+     * @param chatId the chat ID for session management.
+     */
+    private void finishRequest(String chatId) {
+        ChatSession session = chatSessionCache.getIfPresent(Long.valueOf(chatId));
+        if (session != null) {
+            session.moveTo(ChatState.IDLE);
+        }
+    }
+
     /**
      * Converts a string representation of the search type into a {@link SearchType} enum.
      *
@@ -101,19 +168,24 @@ public class CalendarDataService {
 
     /**
      * Processes a search request by validating the format and extracting search parameters from the message.
+     * Precisely typed commands are parsed locally by {@link LocalCommandParser}, anything
+     * else is converted by ChatGPT first.
      *
      * @param messageText the text message containing the search criteria.
      * @param chatId     the chat ID for session management.
      * @param userId     the user ID to identify the user making the request.
-     * @return a string containing the search results.
+     * @return the first page of the search results.
      * @throws GeneralSecurityException if there is an issue with security while accessing Google Calendar.
      * @throws IllegalArgumentException if the message format is incorrect.
      * @throws IOException if an input or output error occurs during the request.
      */
-    protected String processSearchRequest(String messageText, String chatId, String userId) throws GeneralSecurityException, IllegalArgumentException, IOException {
+    protected SearchPage processSearchRequest(String messageText, String chatId, String userId) throws GeneralSecurityException, IllegalArgumentException, IOException {
         // Format of the message "yyyy-MM-dd / yyyy-MM-dd / TypeSearch / Keyword"
-        String res = "";
-        messageText = chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.SEARCH_TEXT, userId);
+        SearchPage res = null;
+        String parsed = localCommandParser.parseSearchRequest(messageText);
+        messageText = parsed != null
+                ? parsed
+                : chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.SEARCH_TEXT, userId);
         
         boolean isTrueFormat = TextHandler.checkFormatSearchRequest(messageText);
 
@@ -138,6 +210,8 @@ public class CalendarDataService {
 
     /**
      * Processes an event creation request by validating the format and extracting event parameters from the message.
+     * Precisely typed commands are parsed locally by {@link LocalCommandParser}, anything
+     * else is converted by ChatGPT first.
      *
      * @param messageText the text message containing the event creation criteria.
      * @param userId     the user ID to identify the user making the request.
@@ -147,7 +221,10 @@ public class CalendarDataService {
      */
     protected void processEventCreation(String messageText, String userId) throws GeneralSecurityException, IllegalArgumentException, IOException {
         // Format of the message "Date Time Description"
-        messageText = chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.CREATING_EVENT_TEXT, userId);
+        String parsed = localCommandParser.parseEventCreation(messageText);
+        messageText = parsed != null
+                ? parsed
+                : chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.CREATING_EVENT_TEXT, userId);
         boolean isTrueFormat = TextHandler.checkFormatEventCreation(messageText);
 
         if (isTrueFormat) {
@@ -167,6 +244,8 @@ public class CalendarDataService {
 
     /**
      * Processes an analytics request by validating the format and extracting parameters from the message.
+     * Precisely typed commands are parsed locally by {@link LocalCommandParser}, anything
+     * else is converted by ChatGPT first.
      *
      * @param messageText the text message containing the analytics request criteria.
      * @param chatId     the chat ID for session management.
@@ -177,7 +256,10 @@ public class CalendarDataService {
     protected String processAnalyticsRequest(String messageText, String chatId, String userId) throws IllegalArgumentException{
         // Format of the message "yyyy-MM-dd yyyy-MM-dd Keyword"
         String res = "";
-        messageText = chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.ANALYTICS_TEXT, userId);
+        String parsed = localCommandParser.parseAnalyticsRequest(messageText);
+        messageText = parsed != null
+                ? parsed
+                : chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.ANALYTICS_TEXT, userId);
         boolean isTrueFormat = TextHandler.checkFormatAnalyticsRequest(messageText.trim());
 
         if (isTrueFormat) {
@@ -196,6 +278,19 @@ public class CalendarDataService {
         return res;
     }
 
+    /**
+     * Extracts the period and the meeting duration of a free time request from the message.
+     *
+     * @param messageText the text message containing the free time request.
+     * @param userId      the user ID to identify the user making the request.
+     * @return the start date, end date and duration, see {@link TextHandler#extractAvailabilityDetails}.
+     * @throws IllegalArgumentException if the period cannot be recognized.
+     */
+    protected String[] extractAvailabilityDetails(String messageText, String userId) throws IllegalArgumentException {
+        String gptResponse = chatGPTHadler.publicGetResponseFromChatGPT(messageText, TypeGPTRequest.AVAILABILITY, userId);
+        return TextHandler.extractAvailabilityDetails(gptResponse);
+    }
+
     /**
      * Creates a new event in Google Calendar based on the provided date, time, duration, and description.
      *
@@ -215,4 +310,46 @@ public class CalendarDataService {
         googleCalendarService.createGoogleCalendarEvent(description, description, startDateTime, endDateTime, userId);
     }
 
+    /**
+     * Creates the confirmed events in Google Calendar. Several events are sent in a single
+     * batch request and reported one by one.
+     *
+     * @param pendingEvents the confirmed events.
+     * @param userId        the user ID to identify the user creating the events.
+     * @return the message reporting the result to the user.
+     * @throws GeneralSecurityException if there is an issue with security while accessing Google Calendar.
+     * @throws IOException if an input or output error occurs during the request.
+     */
+    public String createCalendarEvents(List<PendingEvent> pendingEvents, String userId)
+            throws GeneralSecurityException, IOException {
+        if (pendingEvents.size() == 1) {
+            PendingEvent pendingEvent = pendingEvents.get(0);
+            createCalendarEvent(pendingEvent.date(), pendingEvent.time(), pendingEvent.duration(),
+                    pendingEvent.description(), userId);
+            return Messages.EVENT_CREATED;
+        }
+
+        List<NewEvent> newEvents = new ArrayList<>();
+        for (PendingEvent pendingEvent : pendingEvents) {
+            LocalDateTime startDateTime = LocalDateTime.parse(pendingEvent.date() + " " + pendingEvent.time(),
+                    DateTimeFormatter.ofPattern(Constants.DATE_TIME_PATTERN));
+            LocalDateTime endDateTime = startDateTime.plusMinutes(Long.parseLong(pendingEvent.duration()));
+            newEvents.add(new NewEvent(pendingEvent.description(), pendingEvent.description(), startDateTime,
+                    endDateTime));
+        }
+
+        List<InsertResult> results = googleCalendarService.createGoogleCalendarEvents(newEvents, userId);
+        long created = results.stream().filter(InsertResult::isCreated).count();
+
+        StringBuilder res = new StringBuilder(Messages.EVENTS_CREATED)
+                .append(created).append(" of ").append(results.size()).append(".");
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).isCreated()) {
+                res.append("\n").append(Messages.EVENT_NOT_CREATED).append(pendingEvents.get(i).text())
+                        .append(" (").append(results.get(i).error()).append(")");
+            }
+        }
+        return res.toString();
+    }
+
 }
@@ -0,0 +1,76 @@
+package krpaivin.telcal.telegram;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Dialog state of a single chat: the request the bot is waiting an answer for and the
+ * events waiting for confirmation.
+ *
+ * All transitions are synchronized, so the state and the pending events are always
+ * changed together.
+ */
+public class ChatSession {
+    private final Instant createdAt = Instant.now();
+    private Instant updatedAt = createdAt;
+    private ChatState state = ChatState.IDLE;
+    private List<PendingEvent> pendingEvents;
+
+    public synchronized ChatState getState() {
+        return state;
+    }
+
+    /**
+     * Moves the session to the specified state.
+     *
+     * @param newState the new state.
+     */
+    public synchronized void moveTo(ChatState newState) {
+        state = newState;
+        touch();
+    }
+
+    /**
+     * Stores the events waiting for confirmation, replacing the previous ones.
+     *
+     * @param events the events to store, confirmed together.
+     */
+    public synchronized void setPendingEvents(List<PendingEvent> events) {
+        pendingEvents = List.copyOf(events);
+        touch();
+    }
+
+    /**
+     * Returns the events waiting for confirmation and removes them from the session, so
+     * they can be confirmed only once.
+     *
+     * @return the pending events, or null if there are none.
+     */
+    public synchronized List<PendingEvent> takePendingEvents() {
+        List<PendingEvent> events = pendingEvents;
+        pendingEvents = null;
+        touch();
+        return events;
+    }
+
+    /**
+     * Drops the pending events and returns the session to the idle state.
+     */
+    public synchronized void reset() {
+        state = ChatState.IDLE;
+        pendingEvents = null;
+        touch();
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    private void touch() {
+        updatedAt = Instant.now();
+    }
+}
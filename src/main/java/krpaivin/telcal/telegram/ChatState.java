@@ -0,0 +1,9 @@
+package krpaivin.telcal.telegram;
+
+/**
+ * States of a chat dialog. A state other than {@code IDLE} means that the bot is waiting
+ * for the user to answer a previous request.
+ */
+public enum ChatState {
+    IDLE, ANALYTICS, SEARCH, AUTHORIZATION, SET_CALENDAR, KEYWORDS, DEFAULT_KEYWORDS, COMPOUND_KEYWORDS, SUBMIT, AVAILABILITY;
+}
@@ -0,0 +1,302 @@
+package krpaivin.telcal.telegram;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import krpaivin.telcal.config.Constants;
+import krpaivin.telcal.config.StatsSource;
+
+/**
+ * Parses precisely typed text commands locally, so they are answered without a ChatGPT
+ * round trip.
+ *
+ * Each method recognizes the strict format checked by {@link TextHandler} and a few
+ * common relative phrases ("tomorrow 15:00 dentist", "last month gym") and returns the
+ * same text ChatGPT would have returned for it. Anything else, including dates that
+ * look right but do not exist, returns null and is left to ChatGPT. The outcomes are
+ * counted per command for the administrator's {@code /stats} command.
+ */
+@Component
+public class LocalCommandParser implements StatsSource {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(Constants.DATE_PATTERN_DASH);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter INPUT_TIME_FORMATTER = DateTimeFormatter.ofPattern("H:mm")
+            .withResolverStyle(ResolverStyle.STRICT);
+    private static final String ALL_TIME_START = "1900-01-01";
+    private static final String ALL_TIME_END = "2100-01-01";
+
+    private static final Pattern EVENT = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2}|today|tomorrow|day after tomorrow)\\s+(\\d{1,2}:\\d{2})\\s+(\\S.*)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern DATE_RANGE = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2})\\s+(\\d{4}-\\d{2}-\\d{2})(?:\\s+(\\S.*))?", Pattern.DOTALL);
+    private static final Pattern SEARCH = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2})\\s*/\\s*(\\d{4}-\\d{2}-\\d{2})"
+                    + "(?:\\s*/\\s*([^/]*?))?(?:\\s*/\\s*(first|last|all))?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern SEARCH_TYPE = Pattern.compile("(first|last|all)(?:\\s+(\\S.*))?",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * Relative periods, longest first so that no phrase is matched by a shorter one.
+     */
+    private static final String[] PERIODS = {
+        "this week", "last week", "this month", "last month", "this year", "last year", "yesterday", "today"
+    };
+
+    private final LongAdder[][] outcomes = new LongAdder[Command.values().length][Outcome.values().length];
+
+    /**
+     * The commands that can be parsed locally.
+     */
+    enum Command {
+        EVENT, ANALYTICS, SEARCH
+    }
+
+    /**
+     * The result of a parse attempt.
+     */
+    enum Outcome {
+        /** Parsed locally. */
+        PARSED,
+        /** Had a local format but an impossible date or time; sent to ChatGPT. */
+        INVALID,
+        /** No local format; sent to ChatGPT. */
+        FALLBACK
+    }
+
+    public LocalCommandParser() {
+        for (LongAdder[] command : outcomes) {
+            for (int i = 0; i < command.length; i++) {
+                command[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Parses an event creation request.
+     *
+     * @param messageText the text of the user.
+     * @return "yyyy-MM-dd HH:mm Description", or null if ChatGPT has to parse the text.
+     */
+    public String parseEventCreation(String messageText) {
+        return parseEventCreation(messageText, LocalDate.now());
+    }
+
+    /**
+     * Parses an analytics request.
+     *
+     * @param messageText the text of the user.
+     * @return "yyyy-MM-dd yyyy-MM-dd Keyword", the keyword being optional, or null if
+     *         ChatGPT has to parse the text.
+     */
+    public String parseAnalyticsRequest(String messageText) {
+        return parseAnalyticsRequest(messageText, LocalDate.now());
+    }
+
+    /**
+     * Parses a search request.
+     *
+     * @param messageText the text of the user.
+     * @return "yyyy-MM-dd / yyyy-MM-dd / Keyword / TypeSearch", the keyword possibly
+     *         empty, or null if ChatGPT has to parse the text.
+     */
+    public String parseSearchRequest(String messageText) {
+        return parseSearchRequest(messageText, LocalDate.now());
+    }
+
+    String parseEventCreation(String messageText, LocalDate today) {
+        String text = normalize(messageText);
+        Matcher matcher = EVENT.matcher(text);
+        if (!matcher.matches()) {
+            return record(Command.EVENT, Outcome.FALLBACK, null);
+        }
+        try {
+            LocalDate date = switch (matcher.group(1).toLowerCase(Locale.ROOT)) {
+                case "today" -> today;
+                case "tomorrow" -> today.plusDays(1);
+                case "day after tomorrow" -> today.plusDays(2);
+                default -> LocalDate.parse(matcher.group(1));
+            };
+            LocalTime time = LocalTime.parse(matcher.group(2), INPUT_TIME_FORMATTER);
+            return record(Command.EVENT, Outcome.PARSED,
+                    date.format(DATE_FORMATTER) + " " + time.format(TIME_FORMATTER) + " " + matcher.group(3));
+        } catch (DateTimeParseException e) {
+            return record(Command.EVENT, Outcome.INVALID, null);
+        }
+    }
+
+    String parseAnalyticsRequest(String messageText, LocalDate today) {
+        String text = normalize(messageText);
+        Matcher matcher = DATE_RANGE.matcher(text);
+        String[] range;
+        String keyword;
+        if (matcher.matches()) {
+            range = parseRange(matcher.group(1), matcher.group(2));
+            keyword = matcher.group(3);
+        } else {
+            Period period = matchPeriod(text, today);
+            if (period == null) {
+                return record(Command.ANALYTICS, Outcome.FALLBACK, null);
+            }
+            range = new String[] { period.start().format(DATE_FORMATTER), period.end().format(DATE_FORMATTER) };
+            keyword = period.rest();
+        }
+        if (range == null) {
+            return record(Command.ANALYTICS, Outcome.INVALID, null);
+        }
+        String result = range[0] + " " + range[1];
+        return record(Command.ANALYTICS, Outcome.PARSED,
+                keyword == null || keyword.isEmpty() ? result : result + " " + keyword);
+    }
+
+    String parseSearchRequest(String messageText, LocalDate today) {
+        String text = normalize(messageText);
+        Matcher matcher = SEARCH.matcher(text);
+        if (matcher.matches()) {
+            return searchResult(parseRange(matcher.group(1), matcher.group(2)), matcher.group(3), matcher.group(4));
+        }
+
+        String[] range = null;
+        String rest = text;
+        Matcher dateMatcher = DATE_RANGE.matcher(text);
+        boolean hasDates = dateMatcher.matches();
+        Period period = hasDates ? null : matchPeriod(text, today);
+        if (hasDates) {
+            range = parseRange(dateMatcher.group(1), dateMatcher.group(2));
+            rest = dateMatcher.group(3) == null ? "" : dateMatcher.group(3);
+        } else if (period != null) {
+            range = new String[] { period.start().format(DATE_FORMATTER), period.end().format(DATE_FORMATTER) };
+            rest = period.rest();
+        }
+
+        String searchType = null;
+        Matcher typeMatcher = SEARCH_TYPE.matcher(rest);
+        if (typeMatcher.matches()) {
+            String keyword = typeMatcher.group(2);
+            if (keyword != null && (keyword.indexOf(' ') >= 0 || "all".equalsIgnoreCase(typeMatcher.group(1)))) {
+                // "first aid training", "all hands": the word may belong to the keyword
+                return record(Command.SEARCH, Outcome.FALLBACK, null);
+            }
+            searchType = typeMatcher.group(1);
+            rest = keyword;
+        }
+        if (!hasDates && period == null) {
+            if (searchType == null || rest == null) {
+                return record(Command.SEARCH, Outcome.FALLBACK, null);
+            }
+            // "last dentist": the whole history, like ChatGPT does without a period
+            range = new String[] { ALL_TIME_START, ALL_TIME_END };
+        }
+        return searchResult(range, rest, searchType);
+    }
+
+    private String searchResult(String[] range, String keyword, String searchType) {
+        if (range == null) {
+            return record(Command.SEARCH, Outcome.INVALID, null);
+        }
+        if (searchType == null && keyword != null && SEARCH_TYPE.matcher(keyword).matches()
+                && keyword.indexOf(' ') < 0) {
+            // "yyyy-MM-dd / yyyy-MM-dd / last": a search type without a keyword
+            searchType = keyword;
+            keyword = "";
+        }
+        return record(Command.SEARCH, Outcome.PARSED, range[0] + " / " + range[1] + " / "
+                + (keyword == null ? "" : keyword) + " / "
+                + (searchType == null ? "all" : searchType.toLowerCase(Locale.ROOT)));
+    }
+
+    private static String normalize(String messageText) {
+        return messageText == null ? "" : messageText.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Validates a range of two dates.
+     *
+     * @return the dates, or null if one does not exist or the range is reversed.
+     */
+    private static String[] parseRange(String start, String end) {
+        try {
+            LocalDate startDate = LocalDate.parse(start);
+            LocalDate endDate = LocalDate.parse(end);
+            return startDate.isAfter(endDate) ? null : new String[] { start, end };
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds a relative period at the start or at the end of the text.
+     *
+     * @param text  the normalized text.
+     * @param today the current date.
+     * @return the period and the remaining text, or null if the text has no period.
+     */
+    private static Period matchPeriod(String text, LocalDate today) {
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        for (String phrase : PERIODS) {
+            String rest;
+            if (lowerCase.equals(phrase)) {
+                rest = "";
+            } else if (lowerCase.startsWith(phrase + " ")) {
+                rest = text.substring(phrase.length() + 1);
+            } else if (lowerCase.endsWith(" " + phrase)) {
+                rest = text.substring(0, text.length() - phrase.length() - 1);
+            } else {
+                continue;
+            }
+            return periodOf(phrase, today, rest);
+        }
+        return null;
+    }
+
+    private static Period periodOf(String phrase, LocalDate today, String rest) {
+        LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return switch (phrase) {
+            case "today" -> new Period(today, today, rest);
+            case "yesterday" -> new Period(today.minusDays(1), today.minusDays(1), rest);
+            case "this week" -> new Period(monday, monday.plusDays(6), rest);
+            case "last week" -> new Period(monday.minusWeeks(1), monday.minusDays(1), rest);
+            case "this month" -> new Period(today.withDayOfMonth(1),
+                    today.with(TemporalAdjusters.lastDayOfMonth()), rest);
+            case "last month" -> new Period(today.minusMonths(1).withDayOfMonth(1),
+                    today.withDayOfMonth(1).minusDays(1), rest);
+            case "this year" -> new Period(today.withDayOfYear(1), today.with(TemporalAdjusters.lastDayOfYear()),
+                    rest);
+            case "last year" -> new Period(today.minusYears(1).withDayOfYear(1), today.withDayOfYear(1).minusDays(1),
+                    rest);
+            default -> throw new IllegalArgumentException(phrase);
+        };
+    }
+
+    private String record(Command command, Outcome outcome, String result) {
+        outcomes[command.ordinal()][outcome.ordinal()].increment();
+        return result;
+    }
+
+    @Override
+    public String getStats() {
+        StringBuilder stats = new StringBuilder("Local parser:");
+        for (Command command : Command.values()) {
+            LongAdder[] counts = outcomes[command.ordinal()];
+            stats.append(String.format("%n  %s: %d parsed, %d invalid, %d sent to ChatGPT", command,
+                    counts[Outcome.PARSED.ordinal()].sum(), counts[Outcome.INVALID.ordinal()].sum(),
+                    counts[Outcome.FALLBACK.ordinal()].sum()));
+        }
+        return stats.toString();
+    }
+
+    private record Period(LocalDate start, LocalDate end, String rest) {
+    }
+}
@@ -0,0 +1,343 @@
+package krpaivin.telcal.telegram;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import krpaivin.telcal.config.TelegramProperties;
+import krpaivin.telcal.config.ThreadFactories;
+
+/**
+ * Sends outgoing bot API methods asynchronously while respecting Telegram rate limits.
+ *
+ * Methods are queued per chat and delivered one at a time in submission order. A
+ * global token bucket and a bucket per chat decide when the next method may be sent,
+ * {@code retry_after} from a 429 response pauses the chat and re-queues the method.
+ * Consecutive plain texts waiting for the same chat are merged into one message, and a
+ * plain text longer than a Telegram message is split into several at line boundaries.
+ */
+@Component
+public class OutboundMessageSender {
+    private static final Logger logger = Logger.getLogger(OutboundMessageSender.class.getName());
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final TelegramProperties telegramProperties;
+    private final BotSender botSender;
+    private final TokenBucket globalBucket;
+    private final Cache<String, TokenBucket> chatBuckets;
+    private final Map<String, ChatOutbox> outboxes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public OutboundMessageSender(TelegramProperties telegramProperties) {
+        this.telegramProperties = telegramProperties;
+
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setMaxThreads(telegramProperties.getOutboundSenderThreads());
+        this.botSender = new BotSender(options, telegramProperties.getBotToken());
+
+        this.globalBucket = new TokenBucket(telegramProperties.getOutboundGlobalRate(),
+                telegramProperties.getOutboundGlobalRate());
+        this.chatBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactories.daemonThreadFactory("outbound-scheduler"));
+    }
+
+    /**
+     * Queues a text message. If the previous message for the same chat is still waiting
+     * and both are plain texts, they are sent as one message. A plain text too long for
+     * one message is queued as consecutive chunks.
+     *
+     * @param message the message to send.
+     * @return a future completed with the sent message, the last chunk if it was split;
+     *         completed exceptionally if any chunk fails.
+     */
+    public CompletableFuture<Message> send(SendMessage message) {
+        if (message.getText().length() <= MAX_MESSAGE_LENGTH || !isPlainText(message)) {
+            return submit(message.getChatId(), message);
+        }
+        List<CompletableFuture<Message>> chunks = new ArrayList<>();
+        for (String chunk : split(message.getText(), MAX_MESSAGE_LENGTH)) {
+            chunks.add(submit(message.getChatId(), new SendMessage(message.getChatId(), chunk)));
+        }
+        CompletableFuture<Message> last = chunks.get(chunks.size() - 1);
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).thenApply(done -> last.join());
+    }
+
+    /**
+     * Splits a text into chunks of at most the given length, at the last line break
+     * before the limit when there is one. A chunk cut without a line break never ends
+     * in the middle of a surrogate pair, such as an emoji.
+     *
+     * @param text      the text to split.
+     * @param maxLength the maximum length of a chunk.
+     * @return the chunks, in order.
+     */
+    static List<String> split(String text, int maxLength) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (text.length() - start > maxLength) {
+            int end = text.lastIndexOf('\n', start + maxLength);
+            if (end <= start) {
+                end = start + maxLength;
+                if (Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end--;
+                }
+                chunks.add(text.substring(start, end));
+                start = end;
+            } else {
+                chunks.add(text.substring(start, end));
+                start = end + 1;
+            }
+        }
+        chunks.add(text.substring(start));
+        return chunks;
+    }
+
+    /**
+     * Queues a bot API method for the specified chat.
+     *
+     * @param <T>    the type of the method result.
+     * @param chatId the ID of the chat the method is addressed to.
+     * @param method the method to execute.
+     * @return a future completed with the result of the method.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Serializable> CompletableFuture<T> submit(String chatId, BotApiMethod<T> method) {
+        Outgoing<T> outgoing = new Outgoing<>(method);
+        CompletableFuture<?>[] result = new CompletableFuture<?>[1];
+
+        outboxes.compute(chatId, (id, existing) -> {
+            ChatOutbox outbox = existing != null ? existing : new ChatOutbox(id);
+            Outgoing<?> tail = outbox.queue.peekLast();
+            if (tail != null && coalesce(tail, outgoing)) {
+                result[0] = tail.future;
+            } else {
+                outbox.queue.addLast(outgoing);
+                result[0] = outgoing.future;
+            }
+            if (!outbox.active) {
+                outbox.active = true;
+                scheduler.execute(() -> pump(outbox));
+            }
+            return outbox;
+        });
+
+        return (CompletableFuture<T>) result[0];
+    }
+
+    /**
+     * Appends the text of the new message to the waiting one if both are plain texts
+     * and the result fits into a single Telegram message.
+     *
+     * @param waiting  the message waiting in the chat queue.
+     * @param incoming the message being submitted.
+     * @return true if the incoming message was merged; false otherwise.
+     */
+    private boolean coalesce(Outgoing<?> waiting, Outgoing<?> incoming) {
+        if (!(waiting.method instanceof SendMessage first) || !(incoming.method instanceof SendMessage second)
+                || !isPlainText(first) || !isPlainText(second)) {
+            return false;
+        }
+        int length = first.getText().length() + 1 + second.getText().length();
+        if (length > MAX_MESSAGE_LENGTH) {
+            return false;
+        }
+        first.setText(first.getText() + "\n" + second.getText());
+        return true;
+    }
+
+    private boolean isPlainText(SendMessage message) {
+        return message.getReplyMarkup() == null && message.getParseMode() == null
+                && message.getEntities() == null && message.getReplyToMessageId() == null;
+    }
+
+    /**
+     * Sends the next queued method of the chat as soon as both buckets allow it.
+     * Runs on the scheduler thread only, so tokens are never taken concurrently.
+     *
+     * @param outbox the queue of the chat.
+     */
+    private void pump(ChatOutbox outbox) {
+        if (releaseIfIdle(outbox.chatId)) {
+            return;
+        }
+
+        TokenBucket chatBucket = getChatBucket(outbox.chatId);
+        long wait = Math.max(chatBucket.nanosUntilAvailable(), globalBucket.nanosUntilAvailable());
+        boolean acquired = wait <= 0 && chatBucket.tryAcquire();
+        if (acquired && !globalBucket.tryAcquire()) {
+            // A bucket was paused meanwhile; keep the chat token for the next attempt
+            chatBucket.release();
+            acquired = false;
+        }
+        if (!acquired) {
+            scheduler.schedule(() -> pump(outbox), Math.max(wait, TimeUnit.MILLISECONDS.toNanos(1)),
+                    TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        Outgoing<?>[] next = new Outgoing<?>[1];
+        outboxes.computeIfPresent(outbox.chatId, (id, current) -> {
+            next[0] = current.queue.pollFirst();
+            return current;
+        });
+        deliver(outbox, next[0]);
+    }
+
+    /**
+     * Removes the chat queue if there is nothing left to send.
+     *
+     * @param chatId the ID of the chat.
+     * @return true if the queue was empty and has been removed; false otherwise.
+     */
+    private boolean releaseIfIdle(String chatId) {
+        boolean[] idle = { true };
+        outboxes.computeIfPresent(chatId, (id, current) -> {
+            if (current.queue.isEmpty()) {
+                current.active = false;
+                return null;
+            }
+            idle[0] = false;
+            return current;
+        });
+        return idle[0];
+    }
+
+    private TokenBucket getChatBucket(String chatId) {
+        return chatBuckets.get(chatId, id -> new TokenBucket(
+                telegramProperties.getOutboundChatRate(), telegramProperties.getOutboundChatBurst()));
+    }
+
+    /**
+     * Executes the method and schedules the next one of the chat after completion.
+     *
+     * @param <T>      the type of the method result.
+     * @param outbox   the queue of the chat.
+     * @param outgoing the method to deliver.
+     */
+    private <T extends Serializable> void deliver(ChatOutbox outbox, Outgoing<T> outgoing) {
+        outgoing.attempts++;
+        CompletableFuture<T> call;
+        try {
+            call = botSender.executeAsync(outgoing.method);
+        } catch (TelegramApiException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        call.whenComplete((result, error) -> {
+            if (error == null) {
+                outgoing.future.complete(result);
+            } else if (!retryLater(outbox, outgoing, unwrap(error))) {
+                outgoing.future.completeExceptionally(error);
+            }
+            scheduler.execute(() -> pump(outbox));
+        });
+    }
+
+    /**
+     * Re-queues the method at the head of the chat queue if Telegram asked to retry
+     * later, pausing the chat for the requested time.
+     *
+     * @param outbox   the queue of the chat.
+     * @param outgoing the method that failed.
+     * @param error    the failure.
+     * @return true if the method was re-queued; false otherwise.
+     */
+    private boolean retryLater(ChatOutbox outbox, Outgoing<?> outgoing, Throwable error) {
+        if (!(error instanceof TelegramApiRequestException requestException)
+                || !Integer.valueOf(HTTP_TOO_MANY_REQUESTS).equals(requestException.getErrorCode())
+                || requestException.getParameters() == null
+                || requestException.getParameters().getRetryAfter() == null
+                || outgoing.attempts >= MAX_ATTEMPTS) {
+            return false;
+        }
+
+        int retryAfter = requestException.getParameters().getRetryAfter();
+        logger.warning("Telegram rate limit hit for chat " + outbox.chatId + ", retry after " + retryAfter + "s");
+        getChatBucket(outbox.chatId).pause(retryAfter);
+
+        outboxes.compute(outbox.chatId, (id, current) -> {
+            ChatOutbox target = current != null ? current : outbox;
+            target.queue.addFirst(outgoing);
+            target.active = true;
+            return target;
+        });
+        return true;
+    }
+
+    private Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        botSender.shutdown();
+    }
+
+    /**
+     * Queue of methods waiting to be sent to one chat. Guarded by the compute methods
+     * of the outbox map.
+     */
+    private static class ChatOutbox {
+        private final String chatId;
+        private final Deque<Outgoing<?>> queue = new ArrayDeque<>();
+        private boolean active;
+
+        private ChatOutbox(String chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private static class Outgoing<T extends Serializable> {
+        private final BotApiMethod<T> method;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private int attempts;
+
+        private Outgoing(BotApiMethod<T> method) {
+            this.method = method;
+        }
+    }
+
+    /**
+     * Bot API client used only for outgoing methods.
+     */
+    private static class BotSender extends DefaultAbsSender {
+        private BotSender(DefaultBotOptions options, String botToken) {
+            super(options, botToken);
+        }
+
+        private void shutdown() {
+            exe.shutdown();
+        }
+    }
+}
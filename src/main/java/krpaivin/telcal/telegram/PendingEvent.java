@@ -0,0 +1,32 @@
+package krpaivin.telcal.telegram;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event extracted from a GPT response and waiting for the user's confirmation.
+ *
+ * @param text        the line of the GPT response describing this event.
+ * @param date        the date in "yyyy-MM-dd" format.
+ * @param time        the time in "HH:mm" format.
+ * @param duration    the duration in minutes.
+ * @param description the description of the event.
+ */
+public record PendingEvent(String text, String date, String time, String duration, String description) {
+
+    /**
+     * Creates the pending events from the GPT response for event creation. The response
+     * contains one event per line.
+     *
+     * @param gptResponse the response string from GPT containing event details.
+     * @return the pending events in the order of the response.
+     */
+    public static List<PendingEvent> fromGptResponse(String gptResponse) {
+        List<PendingEvent> events = new ArrayList<>();
+        for (String line : TextHandler.splitEventLines(gptResponse)) {
+            String[] details = TextHandler.extractEventDetails(line);
+            events.add(new PendingEvent(line, details[0], details[1], details[2], details[3]));
+        }
+        return events;
+    }
+}
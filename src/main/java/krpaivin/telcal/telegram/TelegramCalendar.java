@@ -7,10 +7,14 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.GetFile;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
@@ -25,11 +29,14 @@ import com.google.api.client.auth.oauth2.TokenResponseException;
 
 import lombok.RequiredArgsConstructor;
 
+import krpaivin.telcal.calendar.CircuitOpenException;
 import krpaivin.telcal.calendar.GoogleCalendarService;
+import krpaivin.telcal.calendar.SearchPage;
 import krpaivin.telcal.chatgpt.TypeGPTRequest;
 import krpaivin.telcal.config.CalendarData;
 import krpaivin.telcal.config.Constants;
 import krpaivin.telcal.config.Messages;
+import krpaivin.telcal.config.StatsSource;
 import krpaivin.telcal.config.TelegramProperties;
 import krpaivin.telcal.config.UserCalendar;
 import krpaivin.telcal.data.UserAuthData;
@@ -37,14 +44,18 @@ import krpaivin.telcal.data.UserAuthData;
 @RequiredArgsConstructor
 @Component
 public class TelegramCalendar extends TelegramLongPollingBot {
+    private static final Logger logger = Logger.getLogger(TelegramCalendar.class.getName());
 
     private final UserAuthData userAuthData;
     private final GoogleCalendarService googleCalendarService;
-    private final Cache<String, String> sessionDataCache;
+    private final Cache<Long, ChatSession> chatSessionCache;
     private final Cache<String, UserCalendar> calendarSelectionCache;
     private final VoiceCommandHandler voiceCommandHandler;
     private final CalendarDataService calendarDataService;
     private final TelegramProperties telegramProperties;
+    private final UpdateDispatcher updateDispatcher;
+    private final OutboundMessageSender outboundMessageSender;
+    private final List<StatsSource> statsSources;
 
     @Override
     public String getBotUsername() {
@@ -58,6 +69,18 @@ public class TelegramCalendar extends TelegramLongPollingBot {
 
     @Override
     public void onUpdateReceived(Update update) {
+        Long chatId = getChatId(update);
+        if (chatId != null) {
+            updateDispatcher.dispatch(chatId, () -> handleUpdate(update));
+        }
+    }
+
+    /**
+     * Handles an update on a worker thread of the {@link UpdateDispatcher}.
+     * 
+     * @param update the update received from Telegram.
+     */
+    private void handleUpdate(Update update) {
         if (update.hasMessage()) {
             // Processing message
             handleMessage(update.getMessage());
@@ -67,6 +90,22 @@ public class TelegramCalendar extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Returns the ID of the chat the update belongs to.
+     * 
+     * @param update the update received from Telegram.
+     * @return the chat ID, or null if the update is not supported by the bot.
+     */
+    private Long getChatId(Update update) {
+        Long chatId = null;
+        if (update.hasMessage()) {
+            chatId = update.getMessage().getChatId();
+        } else if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            chatId = update.getCallbackQuery().getMessage().getChatId();
+        }
+        return chatId;
+    }
+
     /**
      * Handles a callback query from the user.
      * 
@@ -104,12 +143,18 @@ public class TelegramCalendar extends TelegramLongPollingBot {
             case Constants.BUTTON_CLEAR_ALL_KEYWORDS:
                 clearAllKeywordsRequest(chatId, userId);
                 break;
+            case Constants.BUTTON_ALL_CALENDARS:
+                toggleAllCalendarsRequest(chatId, userId);
+                break;
             case Constants.BUTTON_SUBMIT:
                 sendSubmitRequest(chatId);
                 break;
             default:
                 if (callbackQuery.getData().startsWith("Calendar/")) {
                     setUserCalendar(chatId, userId, callbackQuery.getData());
+                } else if (callbackQuery.getData().startsWith(Constants.BUTTON_SEARCH_PAGE)) {
+                    showSearchPage(chatId, userId, callbackQuery.getMessage().getMessageId(),
+                            callbackQuery.getData());
                 }
         }
     }
@@ -117,8 +162,8 @@ public class TelegramCalendar extends TelegramLongPollingBot {
     /**
      * Sends a request for the user to submit their Gmail address.
      *
-     * This method updates the session data cache for the specified user
-     * by storing the current state as 'REQUEST_SUBMIT'. It then sends a
+     * This method moves the chat session of the specified user
+     * to the 'SUBMIT' state. It then sends a
      * response message to the user, prompting them to provide their
      * Gmail address.
      *
@@ -126,7 +171,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      *               request message will be sent.
      */
     private void sendSubmitRequest(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_SUBMIT);
+        getSession(chatId).moveTo(ChatState.SUBMIT);
         sendResponseMessage(chatId, Messages.SEND_YOUR_GMAIL_ADDRESS);
     }
 
@@ -136,30 +181,32 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param chatId the chat ID of the user.
      */
     private void cancelEvent(String chatId) {
-        sessionDataCache.invalidate(chatId);
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).reset();
         sendResponseMessage(chatId, Messages.OPERATION_CANCEL);
     }
 
     /**
-     * Confirms the creation of an event using details stored in the session.
+     * Confirms the creation of the events stored in the session.
      * 
      * @param chatId the chat ID of the user.
      * @param userId the ID of the user.
      */
     private void confirmEvent(String chatId, String userId) {
+        // Taking the events removes them from the session, so a double click creates them only once
+        List<PendingEvent> pendingEvents = getSession(chatId).takePendingEvents();
+        if (pendingEvents == null || pendingEvents.isEmpty()) {
+            sendResponseMessage(chatId, Messages.ERROR_CREATING_EVENT);
+            return;
+        }
         try {
-            String gptResponse = sessionDataCache.getIfPresent(chatId);
-            String[] eventDetails = TextHandler.extractEventDetails(gptResponse);
-            calendarDataService.createCalendarEvent(eventDetails[0], eventDetails[1], eventDetails[2], eventDetails[3],
-                    userId);
-            sendResponseMessage(chatId, Messages.EVENT_CREATED);
+            sendResponseMessage(chatId, calendarDataService.createCalendarEvents(pendingEvents, userId));
         } catch (TokenResponseException e) {
             sendResponseMessage(chatId, Messages.ERROR_INVALID_TOKEN);
+        } catch (CircuitOpenException e) {
+            sendResponseMessage(chatId, Messages.ERROR_CALENDAR_UNAVAILABLE);
         } catch (Exception e) {
             sendResponseMessage(chatId, Messages.ERROR_CREATING_EVENT);
         }
-        sessionDataCache.invalidate(chatId);
     }
 
     /**
@@ -197,8 +244,10 @@ public class TelegramCalendar extends TelegramLongPollingBot {
             String fileId = message.getVoice().getFileId();
             String fileUrl = getFileUrl(fileId);
             String response = "";
+            ChatSession session = getSession(chatId);
+            ChatState state = session.getState();
 
-            if (Constants.REQUEST_ANALYTICS.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
+            if (state == ChatState.ANALYTICS) {
                 String[] analyticDetails = voiceCommandHandler.extractDetailsFromVoiceAndGPT(TypeGPTRequest.ANALYTICS,
                         userId, fileUrl);
                 sendResponseMessage(chatId, TextHandler.getAnalyticsMessageForResponse(analyticDetails));
@@ -207,21 +256,24 @@ public class TelegramCalendar extends TelegramLongPollingBot {
                         chatId, userId);
                 sendResponseMessage(chatId, response);
 
-            } else if (Constants.REQUEST_SEARCH.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
+            } else if (state == ChatState.SEARCH) {
                 String[] searchDetails = voiceCommandHandler.extractDetailsFromVoiceAndGPT(TypeGPTRequest.SEARCH,
                         userId, fileUrl);
                 sendResponseMessage(chatId, TextHandler.getSearchMessageForResponse(searchDetails));
-                response = calendarDataService.getFoundEventFromCalendar(searchDetails[0], searchDetails[1],
-                        searchDetails[2],
-                        searchDetails[3], chatId, userId);
-                sendResponseMessage(chatId, response);
+                sendSearchPage(chatId, calendarDataService.getFoundEventFromCalendar(searchDetails[0],
+                        searchDetails[1], searchDetails[2], searchDetails[3], chatId, userId));
+
+            } else if (state == ChatState.AVAILABILITY) {
+                String[] availabilityDetails = voiceCommandHandler.extractDetailsFromVoiceAndGPT(
+                        TypeGPTRequest.AVAILABILITY, userId, fileUrl);
+                sendAvailabilityResponse(availabilityDetails, chatId, userId);
 
             } else {
                 response = voiceCommandHandler.getResponseFromVoiceAndGPT(TypeGPTRequest.CREATING_EVENT, userId,
                         fileUrl);
                 // Send message with response and buttons for confirmation
                 if (response != null && !"".equals(response)) {
-                    sessionDataCache.put(chatId, response);
+                    session.setPendingEvents(PendingEvent.fromGptResponse(response));
                     sendEventConfirmationMessage(chatId, response);
                 } else {
                     sendResponseMessage(chatId, Messages.ERROR_RECEIVING_AUDIO);
@@ -288,36 +340,92 @@ public class TelegramCalendar extends TelegramLongPollingBot {
             sendRequestForAnalytics(chatId);
         } else if (messageText.equals(Messages.SEARCH)) {
             sendRequestForSearch(chatId);
+        } else if (messageText.equals(Messages.FREE)) {
+            sendRequestForFreeTime(chatId);
         } else if (messageText.equals(Messages.HELP)) {
             sendHelp(chatId);
         } else if (messageText.equals(Messages.START)) {
             sendAuthorizationRequest(chatId);
         } else if (messageText.equals(Messages.SETTING)) {
             sendSettingRequest(chatId);
-        } else if (Constants.REQUEST_ANALYTICS.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            sendAnalyticsRequest(messageText, chatId, userId);
-        } else if (Constants.REQUEST_SEARCH.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            sendSearchRequest(messageText, chatId, userId);
-        } else if (Constants.REQUEST_AUTHORIZATION.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            processAuthorizationRresponse(messageText, chatId, userId);
-        } else if (Constants.REQUEST_SET_CALENDAR.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            processSetCalendar(messageText, chatId, userId);
-        } else if (Constants.REQUEST_KEYWORDS.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            processSetKeywordsRequest(messageText, chatId, userId);
-        } else if (Constants.REQUEST_DEFAULT_KEYWORDS.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            processSetDefaultKeywordsRequest(messageText, chatId, userId);
-        } else if (Constants.REQUEST_COMPOUND_KEYWORDS
-                .equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            processSetCompoundKeywordsRequest(messageText, chatId, userId);
-        } else if (Constants.REQUEST_SUBMIT.equals(sessionDataCache.getIfPresent(chatId + Constants.STATE))) {
-            sendSubmitRequest(messageText, chatId, userId);
-        } else if (messageText.startsWith(Messages.SUMBIT_RESPONSE) && userId.equals(telegramProperties.getUserOneId())) {
-            sendSubmitResponse(messageText);
+        } else if (messageText.equals(Messages.STATS) && userId.equals(telegramProperties.getUserOneId())) {
+            sendStats(chatId);
         } else {
-            requestEventCreation(messageText, chatId, userId);
+            ChatSession session = chatSessionCache.getIfPresent(message.getChatId());
+            ChatState state = session != null ? session.getState() : ChatState.IDLE;
+            handleTextInState(state, messageText, chatId, userId);
+        }
+    }
+
+    /**
+     * Routes a text message according to the state of the chat session.
+     * 
+     * @param state       the current state of the chat session.
+     * @param messageText the text message to be processed.
+     * @param chatId      the chat ID of the user.
+     * @param userId      the ID of the user.
+     */
+    private void handleTextInState(ChatState state, String messageText, String chatId, String userId) {
+        switch (state) {
+            case ANALYTICS:
+                sendAnalyticsRequest(messageText, chatId, userId);
+                break;
+            case SEARCH:
+                sendSearchRequest(messageText, chatId, userId);
+                break;
+            case AVAILABILITY:
+                sendAvailabilityRequest(messageText, chatId, userId);
+                break;
+            case AUTHORIZATION:
+                processAuthorizationRresponse(messageText, chatId, userId);
+                break;
+            case SET_CALENDAR:
+                processSetCalendar(messageText, chatId, userId);
+                break;
+            case KEYWORDS:
+                processSetKeywordsRequest(messageText, chatId, userId);
+                break;
+            case DEFAULT_KEYWORDS:
+                processSetDefaultKeywordsRequest(messageText, chatId, userId);
+                break;
+            case COMPOUND_KEYWORDS:
+                processSetCompoundKeywordsRequest(messageText, chatId, userId);
+                break;
+            case SUBMIT:
+                sendSubmitRequest(messageText, chatId, userId);
+                break;
+            default:
+                if (messageText.startsWith(Messages.SUMBIT_RESPONSE)
+                        && userId.equals(telegramProperties.getUserOneId())) {
+                    sendSubmitResponse(messageText);
+                } else {
+                    requestEventCreation(messageText, chatId, userId);
+                }
         }
     }
 
+    /**
+     * Sends the statistics of the caches and other components to the administrator.
+     * 
+     * @param chatId the chat ID of the administrator.
+     */
+    private void sendStats(String chatId) {
+        String stats = statsSources.stream()
+                .map(StatsSource::getStats)
+                .collect(Collectors.joining("\n"));
+        sendResponseMessage(chatId, stats.isEmpty() ? Messages.NO_STATS : stats);
+    }
+
+    /**
+     * Returns the session of the chat, creating it if necessary.
+     * 
+     * @param chatId the chat ID of the user.
+     * @return the chat session.
+     */
+    private ChatSession getSession(String chatId) {
+        return chatSessionCache.get(Long.valueOf(chatId), id -> new ChatSession());
+    }
+
     /**
      * Sends a response based on the user's reply to a previous request.
      *
@@ -362,7 +470,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      *                    used to identify the requester in the notification.
      */
     private void sendSubmitRequest(String messageText, String chatId, String userId) {
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
 
         sendResponseMessage(telegramProperties.getAdminChatid(),
                 "New request. User id: " + userId + ". Chat id: " + chatId + ". Message: " + messageText);
@@ -398,14 +506,99 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      */
     private void sendSearchRequest(String messageText, String chatId, String userId) {
         try {
-            calendarDataService.processSearchRequest(messageText, chatId, userId);
+            sendSearchPage(chatId, calendarDataService.processSearchRequest(messageText, chatId, userId));
         } catch (IllegalArgumentException e) {
             sendResponseMessage(chatId, e.getMessage());
+        } catch (CircuitOpenException e) {
+            sendResponseMessage(chatId, Messages.ERROR_CALENDAR_UNAVAILABLE);
         } catch (GeneralSecurityException | IOException e) {
             sendResponseMessage(chatId, Messages.ERROR_SEARCHING);
         }
     }
 
+    /**
+     * Sends a page of search results, with navigation buttons if the results have more
+     * than one page.
+     * 
+     * @param chatId the ID of the chat where the message is sent
+     * @param page   the page to send
+     */
+    private void sendSearchPage(String chatId, SearchPage page) {
+        SendMessage message = new SendMessage(chatId, page.text());
+        message.setReplyMarkup(getSearchPageMarkup(page));
+        executeMessage(message);
+    }
+
+    /**
+     * Replaces the search results in the message with the page requested by a
+     * navigation button. The page is fetched from the calendar only if it has not
+     * been shown before.
+     * 
+     * @param chatId       the ID of the chat where the button was pressed
+     * @param userId       the ID of the user who pressed the button
+     * @param messageId    the ID of the message with the search results
+     * @param callbackData the data of the button: prefix, cursor ID and page index
+     */
+    private void showSearchPage(String chatId, String userId, Integer messageId, String callbackData) {
+        String[] parts = callbackData.split("/");
+        try {
+            SearchPage page = parts.length == 3
+                    ? calendarDataService.getSearchPage(parts[1], Integer.parseInt(parts[2]), userId)
+                    : null;
+            if (page == null) {
+                sendResponseMessage(chatId, Messages.SEARCH_EXPIRED);
+                return;
+            }
+
+            EditMessageText edit = new EditMessageText(page.text());
+            edit.setChatId(chatId);
+            edit.setMessageId(messageId);
+            edit.setReplyMarkup(getSearchPageMarkup(page));
+            outboundMessageSender.submit(chatId, edit)
+                    .whenComplete((edited, error) -> {
+                        if (error != null) {
+                            logger.warning("Failed to show search page in chat " + chatId + ": "
+                                    + error.getMessage());
+                        }
+                    });
+        } catch (NumberFormatException e) {
+            sendResponseMessage(chatId, Messages.SEARCH_EXPIRED);
+        } catch (CircuitOpenException e) {
+            sendResponseMessage(chatId, Messages.ERROR_CALENDAR_UNAVAILABLE);
+        } catch (IOException e) {
+            sendResponseMessage(chatId, Messages.ERROR_SEARCHING);
+        }
+    }
+
+    /**
+     * Creates the previous/next buttons of a page of search results.
+     * 
+     * @param page the page of search results
+     * @return the buttons, or null if the page is the only one
+     */
+    private InlineKeyboardMarkup getSearchPageMarkup(SearchPage page) {
+        if (page.cursorId() == null) {
+            return null;
+        }
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        if (page.hasPrevious()) {
+            InlineKeyboardButton previousButton = new InlineKeyboardButton();
+            previousButton.setText(Messages.BUTTON_PREVIOUS_PAGE);
+            previousButton.setCallbackData(Constants.BUTTON_SEARCH_PAGE + page.cursorId() + "/" + (page.index() - 1));
+            row.add(previousButton);
+        }
+        if (page.hasNext()) {
+            InlineKeyboardButton nextButton = new InlineKeyboardButton();
+            nextButton.setText(Messages.BUTTON_NEXT_PAGE);
+            nextButton.setCallbackData(Constants.BUTTON_SEARCH_PAGE + page.cursorId() + "/" + (page.index() + 1));
+            row.add(nextButton);
+        }
+
+        InlineKeyboardMarkup markup = new InlineKeyboardMarkup();
+        markup.setKeyboard(List.of(row));
+        return markup;
+    }
+
     /**
      * Sends an analytics request based on the provided message text, chat ID, and
      * user ID.
@@ -416,12 +609,42 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      */
     private void sendAnalyticsRequest(String messageText, String chatId, String userId) {
         try {
-            calendarDataService.processAnalyticsRequest(messageText, chatId, userId);
+            sendResponseMessage(chatId, calendarDataService.processAnalyticsRequest(messageText, chatId, userId));
+        } catch (IllegalArgumentException e) {
+            sendResponseMessage(chatId, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a free time request based on the provided message text, chat ID, and
+     * user ID.
+     * 
+     * @param messageText the text message containing the period and duration
+     * @param chatId      the ID of the chat where the message is sent
+     * @param userId      the ID of the user looking for free time
+     */
+    private void sendAvailabilityRequest(String messageText, String chatId, String userId) {
+        try {
+            String[] availabilityDetails = calendarDataService.extractAvailabilityDetails(messageText, userId);
+            sendAvailabilityResponse(availabilityDetails, chatId, userId);
         } catch (IllegalArgumentException e) {
             sendResponseMessage(chatId, e.getMessage());
         }
     }
 
+    /**
+     * Echoes the recognized free time request and sends the free slots found.
+     * 
+     * @param availabilityDetails the start date, end date and duration of the request
+     * @param chatId              the ID of the chat where the message is sent
+     * @param userId              the ID of the user looking for free time
+     */
+    private void sendAvailabilityResponse(String[] availabilityDetails, String chatId, String userId) {
+        sendResponseMessage(chatId, TextHandler.getAvailabilityMessageForResponse(availabilityDetails));
+        sendResponseMessage(chatId, calendarDataService.getFreeTimeFromCalendar(availabilityDetails[0],
+                availabilityDetails[1], availabilityDetails[2], chatId, userId));
+    }
+
     /**
      * Sends a message to the user to choose various settings options.
      * 
@@ -460,10 +683,14 @@ public class TelegramCalendar extends TelegramLongPollingBot {
         clearAllKeywordsButton.setText(Messages.BUTTON_CLEAR_KEYWORDS);
         clearAllKeywordsButton.setCallbackData(Constants.BUTTON_CLEAR_ALL_KEYWORDS);
 
+        InlineKeyboardButton allCalendarsButton = new InlineKeyboardButton();
+        allCalendarsButton.setText(Messages.BUTTON_ALL_CALENDARS);
+        allCalendarsButton.setCallbackData(Constants.BUTTON_ALL_CALENDARS);
+
         buttons.add(Arrays.asList(submitButton));
         buttons.add(Arrays.asList(allSettingsButton, cancelButton));
         buttons.add(Arrays.asList(keywordsButton, defaultKeywordButton, compoundKeywordsButton));
-        buttons.add(Arrays.asList(clearAllKeywordsButton));
+        buttons.add(Arrays.asList(clearAllKeywordsButton, allCalendarsButton));
         markup.setKeyboard(buttons);
 
         SendMessage message = new SendMessage(chatId, Messages.WHAT_SETTINGS);
@@ -530,7 +757,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param userId      the ID of the user setting the calendar
      */
     private void processSetCalendar(String messageText, String chatId, String userId) {
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
         if (userAuthData.saveSelectedCalendar(userId, messageText)) {
             sendResponseMessage(chatId, Messages.CALENDAR_SUCCESS);
         } else {
@@ -579,7 +806,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      */
     private void processAuthorizationRresponse(String messageText, String chatId, String userId) {
         String choiceCalendar = googleCalendarService.getAccessToCalendar(messageText, userId);
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
         if ("".equals(choiceCalendar) || choiceCalendar.startsWith(Messages.ERROR)) {
             sendResponseMessage(chatId, choiceCalendar);
         } else {
@@ -596,7 +823,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param userId      the ID of the user setting the compound keywords
      */
     private void processSetCompoundKeywordsRequest(String messageText, String chatId, String userId) {
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
         if (userAuthData.saveCompoundKeywords(userId, messageText)) {
             sendResponseMessage(chatId, Messages.COMP_KEYWORDS_SUCCESS);
         } else {
@@ -613,7 +840,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param userId      the ID of the user setting the default keywords
      */
     private void processSetDefaultKeywordsRequest(String messageText, String chatId, String userId) {
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
         if (userAuthData.saveDefaultKeywords(userId, messageText)) {
             sendResponseMessage(chatId, Messages.DEFAULT_KEYWORD_SUCCESS);
         } else {
@@ -630,7 +857,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param userId      the ID of the user setting the keywords
      */
     private void processSetKeywordsRequest(String messageText, String chatId, String userId) {
-        sessionDataCache.invalidate(chatId + Constants.STATE);
+        getSession(chatId).moveTo(ChatState.IDLE);
         if (userAuthData.saveKeywords(userId, messageText)) {
             sendResponseMessage(chatId, Messages.KEYWORDS_SUCCESS);
         } else {
@@ -653,6 +880,22 @@ public class TelegramCalendar extends TelegramLongPollingBot {
         }
     }
 
+    /**
+     * Switches search and analytics between the selected calendar and all calendars of
+     * the user.
+     * 
+     * @param chatId the ID of the chat where the message is sent
+     * @param userId the ID of the user changing the mode
+     */
+    private void toggleAllCalendarsRequest(String chatId, String userId) {
+        boolean allCalendars = !userAuthData.isAllCalendarsMode(userId);
+        if (userAuthData.saveAllCalendarsMode(userId, allCalendars)) {
+            sendResponseMessage(chatId, allCalendars ? Messages.ALL_CALENDARS_ON : Messages.ALL_CALENDARS_OFF);
+        } else {
+            sendResponseMessage(chatId, Messages.ERROR_ALL_CALENDARS);
+        }
+    }
+
     /**
      * Sends a request for authorization to the user by providing a URL for
      * authorization.
@@ -662,7 +905,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
     private void sendAuthorizationRequest(String chatId) {
         String url = googleCalendarService.getUrlForAuthorization();
         if (!"".equals(url)) {
-            sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_AUTHORIZATION);
+            getSession(chatId).moveTo(ChatState.AUTHORIZATION);
             sendResponseMessage(chatId, Messages.FOLLOW_LINK);
             sendResponseMessage(chatId, url);
         } else {
@@ -688,7 +931,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param chatId the ID of the chat where the analytics request is sent
      */
     private void sendRequestForAnalytics(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_ANALYTICS);
+        getSession(chatId).moveTo(ChatState.ANALYTICS);
         sendResponseMessage(chatId, Messages.REQUEST_ANALYTICST);
     }
 
@@ -699,10 +942,21 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param chatId the ID of the chat where the search request is sent
      */
     private void sendRequestForSearch(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_SEARCH);
+        getSession(chatId).moveTo(ChatState.SEARCH);
         sendResponseMessage(chatId, Messages.REQUEST_SEARCH);
     }
 
+    /**
+     * Sends a request for free time to the user, asking for the period and the
+     * duration of the meeting.
+     * 
+     * @param chatId the ID of the chat where the request is sent
+     */
+    private void sendRequestForFreeTime(String chatId) {
+        getSession(chatId).moveTo(ChatState.AVAILABILITY);
+        sendResponseMessage(chatId, Messages.REQUEST_FREE_TIME);
+    }
+
     /**
      * Sends a request to set compound keywords to the user.
      * 
@@ -710,7 +964,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      *               sent
      */
     private void sendSetCompoundKeywordsRequest(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_COMPOUND_KEYWORDS);
+        getSession(chatId).moveTo(ChatState.COMPOUND_KEYWORDS);
         sendResponseMessage(chatId, Messages.REQUEST_COMP_KEYWORDS);
     }
 
@@ -721,7 +975,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      *               sent
      */
     private void sendSetDefaultKeywordsRequest(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_DEFAULT_KEYWORDS);
+        getSession(chatId).moveTo(ChatState.DEFAULT_KEYWORDS);
         sendResponseMessage(chatId, Messages.REQUEST_DEFAULT_KEYWORD);
     }
 
@@ -731,7 +985,7 @@ public class TelegramCalendar extends TelegramLongPollingBot {
      * @param chatId the ID of the chat where the request for keywords is sent
      */
     private void sendSetKeywordsRequest(String chatId) {
-        sessionDataCache.put(chatId + Constants.STATE, Constants.REQUEST_KEYWORDS);
+        getSession(chatId).moveTo(ChatState.KEYWORDS);
         sendResponseMessage(chatId, Messages.REQUEST_KEYWORDS);
     }
 
@@ -747,16 +1001,20 @@ public class TelegramCalendar extends TelegramLongPollingBot {
     }
 
     /**
-     * Executes the provided SendMessage command, sending it to the Telegram API.
+     * Queues the provided SendMessage command in the {@link OutboundMessageSender}.
+     * Failures are logged once the message could not be delivered.
      * 
      * @param message the SendMessage object containing the message to be sent
+     * @return a future completed with the sent message
      */
-    public void executeMessage(SendMessage message) {
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+    public CompletableFuture<Message> executeMessage(SendMessage message) {
+        return outboundMessageSender.send(message)
+                .whenComplete((sent, error) -> {
+                    if (error != null) {
+                        logger.warning("Failed to send message to chat " + message.getChatId() + ": "
+                                + error.getMessage());
+                    }
+                });
     }
 
     /**
@@ -1,8 +1,12 @@
 package krpaivin.telcal.telegram;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import krpaivin.telcal.config.Messages;
+
 /**
  * A utility class for handling text responses from GPT, extracting relevant details for event creation, 
  * analytics, and searches.
@@ -96,6 +100,28 @@ public class TextHandler {
         return details;
     }
 
+    /**
+     * Splits a GPT response for event creation into the lines describing one event each.
+     * Lines without a date in "yyyy-MM-dd" format are ignored; if no line has a date, the
+     * whole response is returned as a single event.
+     *
+     * @param gptResponse the response string from GPT containing one or more events.
+     * @return the lines of the individual events.
+     */
+    protected static List<String> splitEventLines(String gptResponse) {
+        Pattern datePattern = Pattern.compile("\\b\\d{4}-\\d{2}-\\d{2}\\b");
+        List<String> lines = new ArrayList<>();
+        for (String line : gptResponse.split("\\R")) {
+            if (datePattern.matcher(line).find()) {
+                lines.add(line.trim());
+            }
+        }
+        if (lines.isEmpty()) {
+            lines.add(gptResponse.trim());
+        }
+        return lines;
+    }
+
     /**
      * Extracts search details from the given GPT response.
      *
@@ -144,6 +170,39 @@ public class TextHandler {
         return details;
     }
 
+    /**
+     * Extracts the details of a free time request from the given GPT response.
+     *
+     * @param gptResponse the response string from GPT containing the period and duration.
+     * @return an array of strings containing the start date, end date, and duration extracted from the response.
+     *         The array structure is as follows:
+     *         - Index 0: Start date in "yyyy-MM-dd HH:mm" format.
+     *         - Index 1: End date in "yyyy-MM-dd HH:mm" format.
+     *         - Index 2: Duration in minutes, empty if not specified.
+     */
+    protected static String[] extractAvailabilityDetails(String gptResponse) {
+        String[] details = new String[] { null, null, "" };
+        Matcher startDateMatcher = Pattern.compile("Start date: (\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2})\\b")
+                .matcher(gptResponse);
+        Matcher endDateMatcher = Pattern.compile("End date: (\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2})\\b")
+                .matcher(gptResponse);
+        Matcher durationMatcher = Pattern.compile("Duration\\s*=\\s*(\\d+)").matcher(gptResponse);
+
+        if (startDateMatcher.find()) {
+            details[0] = startDateMatcher.group(1);
+        }
+        if (endDateMatcher.find()) {
+            details[1] = endDateMatcher.group(1);
+        }
+        if (durationMatcher.find()) {
+            details[2] = durationMatcher.group(1);
+        }
+        if (details[0] == null || details[1] == null) {
+            throw new IllegalArgumentException(Messages.INCORRECT_MESSAGE_FORMAT);
+        }
+        return details;
+    }
+
     /**
      * Provides a help text detailing the functionalities available to the user.
      *
@@ -170,8 +229,11 @@ public class TextHandler {
         "say in any language \"keyword\" followed by the name. If a type search required say it in free format (by default value = all).\n\n" +
         "4. You can send a request to view analytics for an event in text or audio format. " +
         "Enter period and keyword (optional). In text format: dd.MM.yyyy dd.MM.yyyy Keyword (if you want). " +
-        "In voice format: State the period in free format and if a keyword is required, say \"keyword\" followed by the name." +
-        "5. Bot settings are set at startup (command /start). You can also change the settings using the command /setting";
+        "In voice format: State the period in free format and if a keyword is required, say \"keyword\" followed by the name.\n\n" +
+        "5. You can ask for free time in text or audio format (command /free). " +
+        "State the period in free format and, optionally, the duration of the meeting. " +
+        "Only working hours are considered.\n\n" +
+        "6. Bot settings are set at startup (command /start). You can also change the settings using the command /setting";
     }
 
     /**
@@ -246,6 +308,17 @@ public class TextHandler {
             + " / Search type = " + searchDetails[2] + " / Keyword = " + searchDetails[3];
     }
 
+    /**
+     * Constructs a response message for free time requests based on the extracted details.
+     *
+     * @param availabilityDetails an array of strings containing the start date, end date and duration.
+     * @return a formatted response message summarizing the free time request.
+     */
+    public static String getAvailabilityMessageForResponse(String[] availabilityDetails) {
+        return "Your request: Start date: " + availabilityDetails[0] + " / End date: " + availabilityDetails[1]
+            + (availabilityDetails[2].isEmpty() ? "" : " / Duration = " + availabilityDetails[2]);
+    }
+
     /**
      * Constructs a response message for analytics requests based on the extracted analytic details.
      *
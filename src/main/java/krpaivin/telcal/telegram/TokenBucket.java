@@ -0,0 +1,80 @@
+package krpaivin.telcal.telegram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter used by the {@link OutboundMessageSender}.
+ *
+ * The bucket holds up to {@code capacity} tokens and is refilled continuously with
+ * {@code ratePerSecond} tokens per second. It can also be paused, which is used to
+ * honor the {@code retry_after} value returned by Telegram.
+ */
+class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    TokenBucket(double ratePerSecond, double capacity) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Returns how long the caller has to wait until a token is available.
+     *
+     * @return the waiting time in nanoseconds, 0 if a token is available now.
+     */
+    synchronized long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        refill(now);
+        if (pausedUntil - now > 0) {
+            return pausedUntil - now;
+        }
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return true if a token was taken; false otherwise.
+     */
+    synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        refill(now);
+        if (pausedUntil - now > 0 || tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire()} that was not used.
+     */
+    synchronized void release() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * Stops handing out tokens for the specified time.
+     *
+     * @param seconds the pause duration in seconds.
+     */
+    synchronized void pause(long seconds) {
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+        tokens = 0;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,157 @@
+package krpaivin.telcal.telegram;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import krpaivin.telcal.config.TelegramProperties;
+import krpaivin.telcal.config.ThreadFactories;
+
+/**
+ * Fans incoming updates out to a shared worker pool while keeping updates of the
+ * same chat strictly ordered.
+ *
+ * Every chat gets its own serial queue: at most one task of a chat is running at a
+ * time, the next one is scheduled only when the previous one has finished. The
+ * number of worker threads limits how many chats are processed concurrently, and
+ * the number of pending updates is bounded so that a burst blocks the receiving
+ * thread instead of growing the queues without limit.
+ */
+@Component
+public class UpdateDispatcher {
+    private static final Logger logger = Logger.getLogger(UpdateDispatcher.class.getName());
+
+    private final ExecutorService workers;
+    private final Semaphore pendingUpdates;
+    private final Map<Long, ChatQueue> chatQueues = new ConcurrentHashMap<>();
+
+    public UpdateDispatcher(TelegramProperties telegramProperties) {
+        this.workers = Executors.newFixedThreadPool(telegramProperties.getUpdateWorkerThreads(),
+                ThreadFactories.daemonThreadFactory("update-worker"));
+        this.pendingUpdates = new Semaphore(telegramProperties.getMaxPendingUpdates());
+    }
+
+    /**
+     * Queues a task for the specified chat. Tasks of the same chat are executed in
+     * the order they were dispatched, tasks of different chats run concurrently.
+     *
+     * Blocks the caller while the limit of pending updates is reached.
+     *
+     * @param chatId the ID of the chat the task belongs to.
+     * @param task   the task to execute.
+     */
+    public void dispatch(Long chatId, Runnable task) {
+        try {
+            pendingUpdates.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Interrupted while waiting for a free slot, update for chat " + chatId + " dropped.");
+            return;
+        }
+
+        boolean[] rejected = new boolean[1];
+        chatQueues.compute(chatId, (id, queue) -> {
+            ChatQueue chatQueue = queue != null ? queue : new ChatQueue();
+            chatQueue.tasks.add(task);
+            if (!chatQueue.running) {
+                try {
+                    workers.execute(() -> runNext(id));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the new queue holds only this task
+                    rejected[0] = true;
+                    return null;
+                }
+                chatQueue.running = true;
+            }
+            return chatQueue;
+        });
+        if (rejected[0]) {
+            pendingUpdates.release();
+            logger.warning("Shutting down, update for chat " + chatId + " dropped.");
+        }
+    }
+
+    /**
+     * Runs the next task of the chat and schedules the following one, if any.
+     * A chat is removed from the map as soon as its queue is empty.
+     *
+     * @param chatId the ID of the chat whose queue is processed.
+     */
+    private void runNext(Long chatId) {
+        Runnable[] next = new Runnable[1];
+        chatQueues.computeIfPresent(chatId, (id, queue) -> {
+            next[0] = queue.tasks.poll();
+            return queue;
+        });
+
+        try {
+            if (next[0] != null) {
+                try {
+                    next[0].run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "Error processing update for chat " + chatId, e);
+                } finally {
+                    pendingUpdates.release();
+                }
+            }
+        } finally {
+            // Also after an Error, otherwise the chat would ignore all later updates
+            scheduleNext(chatId);
+        }
+    }
+
+    /**
+     * Re-submits the queue of the chat if it has tasks left, or removes it otherwise.
+     * If the workers are shut down, the remaining tasks are dropped.
+     *
+     * @param chatId the ID of the chat whose queue is processed.
+     */
+    private void scheduleNext(Long chatId) {
+        chatQueues.computeIfPresent(chatId, (id, queue) -> {
+            if (queue.tasks.isEmpty()) {
+                return null;
+            }
+            try {
+                // Re-submit instead of looping so that a busy chat does not hold a worker
+                workers.execute(() -> runNext(id));
+                return queue;
+            } catch (RejectedExecutionException e) {
+                logger.warning("Shutting down, " + queue.tasks.size() + " updates for chat " + id + " dropped.");
+                pendingUpdates.release(queue.tasks.size());
+                return null;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Serial queue of a single chat. Guarded by the compute methods of the map.
+     */
+    private static class ChatQueue {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean running;
+    }
+}
@@ -1,17 +1,13 @@
 package krpaivin.telcal.telegram;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-
-import org.json.JSONObject;
-
-import java.net.HttpURLConnection;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.json.JSONObject;
 
 import com.assemblyai.api.AssemblyAI;
 import com.assemblyai.api.resources.transcripts.types.*;
@@ -21,6 +17,9 @@ import org.springframework.stereotype.Component;
 
 import krpaivin.telcal.chatgpt.ChatGPTHadler;
 import krpaivin.telcal.chatgpt.TypeGPTRequest;
+import krpaivin.telcal.config.ExternalHttpClient;
+import krpaivin.telcal.config.ExternalHttpClient.Endpoint;
+import krpaivin.telcal.config.ExternalHttpClient.TextResponse;
 import krpaivin.telcal.config.TelegramProperties;
 
 /**
@@ -30,11 +29,17 @@ import krpaivin.telcal.config.TelegramProperties;
 @RequiredArgsConstructor
 @Component
 public class VoiceCommandHandler {
+    private static final int HTTP_OK = 200;
+
     private final ChatGPTHadler chatGPTHadler;
     private final TelegramProperties telegramProperties;
+    private final ExternalHttpClient externalHttpClient;
+    private AssemblyAI assemblyAI;
 
     /**
      * Converts a voice audio file located at the specified URL to text using AssemblyAI.
+     * The file is downloaded from Telegram and uploaded to AssemblyAI over the shared HTTP
+     * client.
      *
      * @param fileUrl the URL of the audio file to convert to text
      * @return the transcribed text from the audio file
@@ -42,31 +47,24 @@ public class VoiceCommandHandler {
      * @throws IllegalArgumentException if the provided URL format is invalid
      */
     public String convertVoiceToText(String fileUrl) throws IOException {
-        URL url;
-        try {
-            url = new URI(fileUrl).toURL();
-        } catch (URISyntaxException e) {
-            throw new IllegalArgumentException("Invalid URL format: " + fileUrl, e);
-        }
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
+        HttpResponse<InputStream> download = externalHttpClient.sendStream(Endpoint.TELEGRAM_FILE,
+                HttpRequest.newBuilder(toUri(fileUrl)).GET());
 
         // Create input stream
-        try (InputStream inputStream = connection.getInputStream()) {
-
-            // Download file to AssemblyAI
-            String uploadUrl = uploadAudioFile(inputStream);
+        try (InputStream inputStream = download.body()) {
+            if (download.statusCode() != HTTP_OK) {
+                throw new IOException("Error downloading audio file. HTTP Code: " + download.statusCode());
+            }
 
-            var client = AssemblyAI.builder()
-                    .apiKey(telegramProperties.getAssemblyAI())
-                    .build();
+            // Voice messages are small; a buffered body can be resent if the upload is redirected
+            String uploadUrl = uploadAudioFile(inputStream.readAllBytes());
 
             var params = TranscriptOptionalParams.builder()
                     .languageDetection(true)
                     .speakerLabels(true)
                     .build();
 
-            Transcript transcript = client.transcripts().transcribe(uploadUrl, params);
+            Transcript transcript = getAssemblyAI().transcripts().transcribe(uploadUrl, params);
 
             // Checking the transcription status
             if (transcript.getStatus().equals(TranscriptStatus.ERROR)) {
@@ -78,66 +76,51 @@ public class VoiceCommandHandler {
         }
     }
 
+    /**
+     * Returns the AssemblyAI client, built once on first use so that its own HTTP
+     * connections are reused between voice commands.
+     *
+     * @return the AssemblyAI client.
+     */
+    private synchronized AssemblyAI getAssemblyAI() {
+        if (assemblyAI == null) {
+            assemblyAI = AssemblyAI.builder()
+                    .apiKey(telegramProperties.getAssemblyAI())
+                    .build();
+        }
+        return assemblyAI;
+    }
+
     /**
      * Uploads an audio file to AssemblyAI for transcription.
      *
-     * @param audioInputStream the input stream of the audio file to upload
+     * @param audio the content of the audio file to upload
      * @return the upload URL of the audio file after a successful upload
      * @throws IOException if an I/O error occurs during the upload process
      * @throws IllegalArgumentException if the URL format for AssemblyAI is invalid
      */
-    private String uploadAudioFile(InputStream audioInputStream) throws IOException {
-        URL url;
-        try {
-            url = new URI(telegramProperties.getAssemblyAIURL()).toURL();
-        } catch (URISyntaxException e) {
-            throw new IllegalArgumentException("Invalid URL format: " + telegramProperties.getAssemblyAIURL(), e);
-        }
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("authorization", telegramProperties.getAssemblyAI());
-        connection.setRequestProperty("Content-Type", "application/octet-stream");
-        connection.setDoOutput(true);
-
-        // Sending an audio file
-        try (OutputStream os = connection.getOutputStream()) {
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = audioInputStream.read(buffer)) != -1) {
-                os.write(buffer, 0, bytesRead);
-            }
-        }
+    private String uploadAudioFile(byte[] audio) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(toUri(telegramProperties.getAssemblyAIURL()))
+                .header("authorization", telegramProperties.getAssemblyAI())
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(audio));
 
-        String response = readResponse(connection);
+        TextResponse response = externalHttpClient.send(Endpoint.ASSEMBLYAI_UPLOAD, request);
         // Checking answer
-        if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-            JSONObject jsonObject = new JSONObject(response);
+        if (response.statusCode() == HTTP_OK) {
+            JSONObject jsonObject = new JSONObject(response.body());
             return jsonObject.getString("upload_url"); // Extract URL of the audio file
         } else {
-            throw new IOException("Error loading audio file: " + response);
+            throw new IOException("Error loading audio file: " + response.body());
         }
     }
 
-    /**
-     * Reads the response from the given HTTP connection.
-     *
-     * @param connection the HTTP connection to read the response from
-     * @return the response as a string
-     * @throws IOException if an I/O error occurs while reading the response
-     */
-    private String readResponse(HttpURLConnection connection) throws IOException {
-        InputStream stream = connection.getResponseCode() == HttpURLConnection.HTTP_OK
-                ? connection.getInputStream()
-                : connection.getErrorStream();
-
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(stream))) {
-            String line;
-            while ((line = in.readLine()) != null) {
-                response.append(line);
-            }
+    private URI toUri(String url) {
+        try {
+            return new URI(url);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid URL format: " + url, e);
         }
-        return response.toString();
     }
 
     /**
@@ -157,6 +140,8 @@ public class VoiceCommandHandler {
             details = TextHandler.extractAnalyticDetails(gptResponse);
         } else if (typeGPTRequest == TypeGPTRequest.SEARCH) {
             details = TextHandler.extractSearchDetails(gptResponse);
+        } else if (typeGPTRequest == TypeGPTRequest.AVAILABILITY) {
+            details = TextHandler.extractAvailabilityDetails(gptResponse);
         }
         return details;
     }
@@ -0,0 +1,129 @@
+package krpaivin.telcal.telegram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+
+import krpaivin.telcal.config.TelegramProperties;
+
+/**
+ * Embedded HTTP endpoint receiving updates from Telegram in webhook mode.
+ *
+ * Requests are checked against the secret token configured with the webhook, answered
+ * with 200 right after the update has been parsed and then handed over to
+ * {@link TelegramCalendar}, which processes them on the {@link UpdateDispatcher} pool.
+ * A recorded update can be replayed locally with:
+ * {@code curl -H "X-Telegram-Bot-Api-Secret-Token: <secret>" -d @update.json http://localhost:8080/telegram/webhook}
+ */
+@RequiredArgsConstructor
+@Component
+public class WebhookServer {
+    private static final Logger logger = Logger.getLogger(WebhookServer.class.getName());
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final TelegramCalendar telegramCalendar;
+    private final TelegramProperties telegramProperties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private HttpServer server;
+    private ExecutorService acceptors;
+
+    /**
+     * Starts the HTTP endpoint and, if a public URL is configured, registers it as the
+     * bot webhook.
+     *
+     * @throws IOException          if the server cannot be bound to the configured port.
+     * @throws TelegramApiException if the webhook cannot be registered in Telegram.
+     */
+    public void start() throws IOException, TelegramApiException {
+        if (telegramProperties.getWebhookSecret() == null || telegramProperties.getWebhookSecret().isBlank()) {
+            throw new IllegalStateException("webhookSecret must be configured in webhook mode");
+        }
+
+        acceptors = Executors.newFixedThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress(telegramProperties.getWebhookPort()), 0);
+        server.createContext(telegramProperties.getWebhookPath(), this::handleExchange);
+        server.setExecutor(acceptors);
+        server.start();
+        logger.info("Webhook endpoint is listening on port " + telegramProperties.getWebhookPort()
+                + telegramProperties.getWebhookPath());
+
+        String webhookUrl = telegramProperties.getWebhookUrl();
+        if (webhookUrl != null && !webhookUrl.isBlank()) {
+            telegramCalendar.execute(SetWebhook.builder()
+                    .url(webhookUrl)
+                    .secretToken(telegramProperties.getWebhookSecret())
+                    .build());
+            logger.info("Webhook registered: " + webhookUrl);
+        }
+    }
+
+    /**
+     * Validates and parses a single webhook request.
+     *
+     * @param exchange the HTTP exchange.
+     * @throws IOException if the request cannot be read or answered.
+     */
+    private void handleExchange(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!isSecretValid(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update;
+            try (InputStream body = exchange.getRequestBody()) {
+                update = objectMapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                logger.warning("Invalid update received: " + e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            telegramCalendar.onUpdateReceived(update);
+        }
+    }
+
+    /**
+     * Compares the received secret token with the configured one in constant time.
+     *
+     * @param received the value of the secret token header.
+     * @return true if the token matches; false otherwise.
+     */
+    private boolean isSecretValid(String received) {
+        return received != null && MessageDigest.isEqual(
+                received.getBytes(StandardCharsets.UTF_8),
+                telegramProperties.getWebhookSecret().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            acceptors.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package krpaivin.telcal.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class AvailabilityFinderTest {
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+    private static final LocalTime SIX_PM = LocalTime.of(18, 0);
+
+    private static ZonedDateTime at(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).atZone(ZONE);
+    }
+
+    private static TimeSlot slot(String start, String end) {
+        return new TimeSlot(at(start), at(end));
+    }
+
+    private static List<TimeSlot> find(List<TimeSlot> busy, String from, String to, boolean workingDaysOnly,
+            long minMinutes) {
+        return AvailabilityFinder.findFreeSlots(busy, at(from), at(to), ZONE, NINE, SIX_PM, workingDaysOnly,
+                Duration.ofMinutes(minMinutes));
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentIntervals() {
+        List<TimeSlot> merged = AvailabilityFinder.merge(List.of(
+                slot("2024-03-04T13:00", "2024-03-04T14:00"),
+                slot("2024-03-04T09:00", "2024-03-04T10:00"),
+                slot("2024-03-04T09:30", "2024-03-04T11:00"),
+                slot("2024-03-04T11:00", "2024-03-04T12:00"),
+                slot("2024-03-04T13:15", "2024-03-04T13:45")));
+
+        assertEquals(List.of(slot("2024-03-04T09:00", "2024-03-04T12:00"),
+                slot("2024-03-04T13:00", "2024-03-04T14:00")), merged);
+    }
+
+    @Test
+    void subtractsBusyTimeFromWorkingHours() {
+        List<TimeSlot> free = find(List.of(
+                slot("2024-03-04T10:00", "2024-03-04T11:00"),
+                slot("2024-03-04T10:30", "2024-03-04T12:00"),
+                slot("2024-03-04T17:00", "2024-03-04T19:00")),
+                "2024-03-04T00:00", "2024-03-05T00:00", true, 30);
+
+        assertEquals(List.of(slot("2024-03-04T09:00", "2024-03-04T10:00"),
+                slot("2024-03-04T12:00", "2024-03-04T17:00")), free);
+    }
+
+    @Test
+    void dropsSlotsShorterThanMinimum() {
+        List<TimeSlot> free = find(List.of(
+                slot("2024-03-04T09:20", "2024-03-04T12:00"),
+                slot("2024-03-04T12:45", "2024-03-04T18:00")),
+                "2024-03-04T00:00", "2024-03-05T00:00", true, 45);
+
+        assertEquals(List.of(slot("2024-03-04T12:00", "2024-03-04T12:45")), free);
+    }
+
+    @Test
+    void appliesBusyTimeAcrossMidnightToBothDays() {
+        List<TimeSlot> free = find(List.of(slot("2024-03-04T17:00", "2024-03-05T10:00")),
+                "2024-03-04T00:00", "2024-03-06T00:00", true, 30);
+
+        assertEquals(List.of(slot("2024-03-04T09:00", "2024-03-04T17:00"),
+                slot("2024-03-05T10:00", "2024-03-05T18:00")), free);
+    }
+
+    @Test
+    void skipsWeekendsOnlyIfRequested() {
+        List<TimeSlot> workingDays = find(List.of(), "2024-03-08T12:00", "2024-03-11T10:00", true, 30);
+        List<TimeSlot> allDays = find(List.of(), "2024-03-08T12:00", "2024-03-11T10:00", false, 30);
+
+        assertEquals(List.of(slot("2024-03-08T12:00", "2024-03-08T18:00"),
+                slot("2024-03-11T09:00", "2024-03-11T10:00")), workingDays);
+        assertEquals(List.of(slot("2024-03-08T12:00", "2024-03-08T18:00"),
+                slot("2024-03-09T09:00", "2024-03-09T18:00"),
+                slot("2024-03-10T09:00", "2024-03-10T18:00"),
+                slot("2024-03-11T09:00", "2024-03-11T10:00")), allDays);
+    }
+
+    @Test
+    void measuresSlotsInRealTimeOnDaylightSavingDays() {
+        // Clocks in Berlin moved forward from 02:00 to 03:00 on 2024-03-31
+        LocalTime one = LocalTime.of(1, 0);
+        LocalTime four = LocalTime.of(4, 0);
+
+        List<TimeSlot> twoHours = AvailabilityFinder.findFreeSlots(List.of(), at("2024-03-31T00:00"),
+                at("2024-04-01T00:00"), ZONE, one, four, false, Duration.ofHours(2));
+        List<TimeSlot> threeHours = AvailabilityFinder.findFreeSlots(List.of(), at("2024-03-31T00:00"),
+                at("2024-04-01T00:00"), ZONE, one, four, false, Duration.ofHours(3));
+
+        assertEquals(List.of(slot("2024-03-31T01:00", "2024-03-31T04:00")), twoHours);
+        assertEquals(Duration.ofHours(2), twoHours.get(0).duration());
+        assertEquals(List.of(), threeHours);
+    }
+}
@@ -0,0 +1,193 @@
+package krpaivin.telcal.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.sun.net.httpserver.HttpServer;
+
+import krpaivin.telcal.config.Constants;
+import krpaivin.telcal.config.TelegramProperties;
+
+class CalendarResilienceTest {
+    private HttpServer server;
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile String forbiddenReason = "rateLimitExceeded";
+    private CalendarResilience resilience;
+    private Calendar calendar;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            hits.incrementAndGet();
+            Integer status = statuses.poll();
+            int code = status != null ? status : 200;
+            String errors = code == 403 ? ",\"errors\":[{\"reason\":\"" + forbiddenReason + "\"}]" : "";
+            byte[] body = (code == 200
+                    ? "{\"id\":\"event1\"}"
+                    : "{\"error\":{\"code\":" + code + ",\"message\":\"stub\"" + errors + "}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        TelegramProperties properties = new TelegramProperties();
+        properties.setCalendarMaxAttempts(4);
+        properties.setCalendarBackoffInitialMillis(1);
+        properties.setCalendarBackoffMaxMillis(5);
+        properties.setCalendarBackoffMaxElapsedMillis(1000);
+        properties.setCalendarBreakerFailureThreshold(3);
+        properties.setCalendarBreakerOpenSeconds(60);
+
+        resilience = new CalendarResilience(properties);
+        calendar = calendarOf(resilience, null);
+    }
+
+    private Calendar calendarOf(CalendarResilience resilience, HttpRequestInitializer credential) {
+        return new Calendar.Builder(new NetHttpTransport(), Constants.JSON_FACTORY, resilience.wrap(credential))
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("test")
+                .build();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void retriesTransientErrorsUntilSuccess() throws IOException {
+        statuses.add(503);
+        statuses.add(503);
+
+        Event event = calendar.events().get("primary", "event1").execute();
+
+        assertEquals("event1", event.getId());
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        statuses.add(404);
+
+        assertThrows(GoogleJsonResponseException.class,
+                () -> calendar.events().get("primary", "event1").execute());
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void retriesRateLimitForbidden() throws IOException {
+        statuses.add(403);
+
+        Event event = calendar.events().get("primary", "event1").execute();
+
+        assertEquals("event1", event.getId());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void keepsErrorDetailsOfOtherForbidden() {
+        forbiddenReason = "forbidden";
+        statuses.add(403);
+
+        GoogleJsonResponseException e = assertThrows(GoogleJsonResponseException.class,
+                () -> calendar.events().get("primary", "event1").execute());
+        assertEquals(1, hits.get());
+        assertEquals(403, e.getStatusCode());
+        assertEquals("forbidden", e.getDetails().getErrors().get(0).getReason());
+        assertTrue(e.getContent().contains("stub"));
+    }
+
+    @Test
+    void keepsErrorDetailsWhenRateLimitRetriesRunOut() {
+        for (int i = 0; i < 4; i++) {
+            statuses.add(403);
+        }
+
+        GoogleJsonResponseException e = assertThrows(GoogleJsonResponseException.class,
+                () -> calendar.events().get("primary", "event1").execute());
+        assertEquals(4, hits.get());
+        assertEquals("rateLimitExceeded", e.getDetails().getErrors().get(0).getReason());
+    }
+
+    @Test
+    void treatsConflictOfRetriedInsertAsCreated() throws IOException {
+        statuses.add(409);
+        Event event = new Event().setId("abcdef0123456789").setSummary("Meeting");
+
+        Event created = resilience.insertIdempotently(calendar.events().insert("primary", event), event);
+
+        assertEquals("abcdef0123456789", created.getId());
+    }
+
+    @Test
+    void failsFastWhileCircuitIsOpen() {
+        for (int i = 0; i < 4; i++) {
+            statuses.add(500);
+        }
+
+        // The third failure opens the circuit, so the fourth attempt is not sent
+        assertThrows(CircuitOpenException.class,
+                () -> calendar.events().get("primary", "event1").execute());
+        assertEquals(3, hits.get());
+
+        assertThrows(CircuitOpenException.class,
+                () -> calendar.events().get("primary", "event1").execute());
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void releasesTrialWhenTokenRefreshFails() throws IOException {
+        TelegramProperties properties = new TelegramProperties();
+        properties.setCalendarMaxAttempts(1);
+        properties.setCalendarBreakerFailureThreshold(1);
+        properties.setCalendarBreakerOpenSeconds(0);
+        AtomicBoolean revoked = new AtomicBoolean();
+        Calendar halfOpenCalendar = calendarOf(new CalendarResilience(properties),
+                request -> request.setInterceptor(intercepted -> {
+                    if (revoked.get()) {
+                        throw new IOException("invalid_grant");
+                    }
+                }));
+        statuses.add(500);
+        assertThrows(GoogleJsonResponseException.class,
+                () -> halfOpenCalendar.events().get("primary", "event1").execute());
+
+        // The trial of the half-open circuit fails before it is sent
+        revoked.set(true);
+        IOException e = assertThrows(IOException.class,
+                () -> halfOpenCalendar.events().get("primary", "event1").execute());
+        assertEquals("invalid_grant", e.getMessage());
+        assertEquals(1, hits.get());
+
+        revoked.set(false);
+        Event event = halfOpenCalendar.events().get("primary", "event1").execute();
+
+        assertEquals("event1", event.getId());
+        assertEquals(2, hits.get());
+    }
+}
@@ -0,0 +1,117 @@
+package krpaivin.telcal.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import krpaivin.telcal.calendar.AnalyticsReport.Bucket;
+import krpaivin.telcal.data.KeywordMatcher;
+
+class EventAggregatorTest {
+    private static final ZoneId MOSCOW = ZoneId.of("Europe/Moscow");
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private static long millis(String localDateTime, ZoneId zone) {
+        return LocalDateTime.parse(localDateTime).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static AnalyticsReport report(List<AnalyticsShard> shards, ZoneId zone, KeywordMatcher matcher,
+            String... events) {
+        List<EventAggregator> aggregators = new ArrayList<>();
+        for (AnalyticsShard shard : shards) {
+            EventAggregator aggregator = new EventAggregator(shard.start(), shard.end(), zone, matcher);
+            long shardStart = shard.start().atZone(ZoneId.of("UTC")).toInstant().toEpochMilli();
+            long shardEnd = shard.end().atZone(ZoneId.of("UTC")).toInstant().toEpochMilli();
+            // "start/minutes/summary", local times of the calendar
+            for (String event : events) {
+                String[] parts = event.split("/");
+                long start = millis(parts[0], zone);
+                if (start >= shardStart && start < shardEnd) {
+                    aggregator.add(start, start + Long.parseLong(parts[1]) * 60_000L, parts[2]);
+                }
+            }
+            aggregators.add(aggregator);
+        }
+        return AnalyticsReport.combine(shards, aggregators, matcher.getKeywords(), zone);
+    }
+
+    @Test
+    void countsDaysInTimeZoneOfCalendar() {
+        // 01:00 in Moscow is 22:00 UTC of the previous day
+        AnalyticsReport report = report(
+                AnalyticsShard.split(LocalDateTime.parse("2024-03-01T00:00"), LocalDateTime.parse("2024-04-01T00:00")),
+                MOSCOW, KeywordMatcher.of(null, null), "2024-03-05T01:00/90/Meeting");
+
+        assertEquals(List.of(new Bucket("2024-03-05", 1, 90)), report.days());
+        assertEquals(List.of(new Bucket("2024-03-04", 1, 90)), report.weeks());
+        assertEquals(1, report.weekdays().get(1).events());
+        assertEquals(LocalDateTime.parse("2024-03-05T01:00"), report.longest().start());
+        assertEquals("Meeting", report.longest().summary());
+        assertEquals(MOSCOW, report.zone());
+    }
+
+    @Test
+    void countsEventsBeforeFirstUtcMidnightOnPreviousLocalDay() {
+        // The March shard starts at 19:00 of February 29 in New York
+        AnalyticsReport report = report(
+                AnalyticsShard.split(LocalDateTime.parse("2024-03-01T00:00"), LocalDateTime.parse("2024-04-01T00:00")),
+                NEW_YORK, KeywordMatcher.of(null, null), "2024-02-29T20:00/60/Late", "2024-03-31T19:30/30/Last");
+
+        assertEquals(List.of(new Bucket("2024-02-29", 1, 60), new Bucket("2024-03-31", 1, 30)), report.days());
+        assertEquals(1, report.weekdays().get(3).events());
+        assertEquals(1, report.weekdays().get(6).events());
+    }
+
+    @Test
+    void countsDaysAcrossDaylightSavingChange() {
+        // Clocks in New York moved forward on 2024-03-10
+        AnalyticsReport report = report(
+                AnalyticsShard.split(LocalDateTime.parse("2024-03-01T00:00"), LocalDateTime.parse("2024-04-01T00:00")),
+                NEW_YORK, KeywordMatcher.of(null, null),
+                "2024-03-09T23:30/30/Before", "2024-03-10T23:30/30/After", "2024-03-11T00:30/30/Next");
+
+        assertEquals(List.of(new Bucket("2024-03-09", 1, 30), new Bucket("2024-03-10", 1, 30),
+                new Bucket("2024-03-11", 1, 30)), report.days());
+    }
+
+    @Test
+    void combinesShardsIntoWeeksMonthsAndKeywords() {
+        AnalyticsReport report = report(
+                AnalyticsShard.split(LocalDateTime.parse("2024-02-01T00:00"), LocalDateTime.parse("2024-04-01T00:00")),
+                ZoneId.of("UTC"), KeywordMatcher.of("gym", "My family"),
+                "2024-02-26T10:00/60/Gym", "2024-02-29T10:00/30/Dinner with my family",
+                "2024-03-01T09:00/120/Gym with my family", "2024-03-04T09:00/15/Call");
+
+        assertEquals(4, report.eventCount());
+        assertEquals(225, report.totalMinutes());
+        assertEquals(56, report.averageMinutes());
+        assertEquals(List.of(new Bucket("2024-02", 2, 90), new Bucket("2024-03", 2, 135)), report.months());
+        // The week of February 26 spans both shards
+        assertEquals(List.of(new Bucket("2024-02-26", 3, 210), new Bucket("2024-03-04", 1, 15)), report.weeks());
+        assertEquals(List.of(new Bucket("gym", 2, 180), new Bucket("my family", 2, 150)), report.keywords());
+        assertEquals(List.of(new Bucket("Mon", 2, 75), new Bucket("Tue", 0, 0), new Bucket("Wed", 0, 0),
+                new Bucket("Thu", 1, 30), new Bucket("Fri", 1, 120), new Bucket("Sat", 0, 0),
+                new Bucket("Sun", 0, 0)), report.weekdays());
+        assertEquals("Gym with my family", report.longest().summary());
+        assertEquals(120, report.longest().minutes());
+    }
+
+    @Test
+    void reportsNoLongestEventWithoutEvents() {
+        AnalyticsReport report = report(
+                AnalyticsShard.split(LocalDateTime.parse("2024-03-01T00:00"), LocalDateTime.parse("2024-03-08T00:00")),
+                MOSCOW, KeywordMatcher.of(null, null));
+
+        assertEquals(0, report.eventCount());
+        assertEquals(0, report.averageMinutes());
+        assertNull(report.longest());
+        assertEquals(List.of(), report.days());
+        assertEquals(List.of(new Bucket("2024-03", 0, 0)), report.months());
+    }
+}
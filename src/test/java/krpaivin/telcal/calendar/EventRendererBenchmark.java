@@ -0,0 +1,121 @@
+package krpaivin.telcal.calendar;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+/**
+ * Per-event cost of rendering a search over 1,000 events: the previous formatting
+ * (a formatter per event, an RFC 3339 round trip, {@code String.format}, joined with
+ * {@code Collectors.joining}) against {@link EventRenderer} appending into one reused
+ * builder. Run {@link #main} from the test classpath, e.g. with
+ * {@code -prof gc} added to the options to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventRendererBenchmark {
+    private static final int EVENTS = 1000;
+
+    private final List<Event> events = new ArrayList<>();
+    private final StringBuilder builder = new StringBuilder();
+
+    @Setup
+    public void createEvents() {
+        long start = DateTime.parseRfc3339("2024-01-01T09:00:00+03:00").getValue();
+        for (int i = 0; i < EVENTS; i++) {
+            long eventStart = start + i * 7_200_000L;
+            Event event = new Event().setSummary("Meeting with the team #" + i);
+            if (i % 10 == 0) {
+                event.setStart(new EventDateTime().setDate(new DateTime(true, eventStart, 0)))
+                        .setEnd(new EventDateTime().setDate(new DateTime(true, eventStart + 86_400_000L, 0)));
+            } else {
+                event.setStart(new EventDateTime().setDateTime(new DateTime(eventStart, 180)))
+                        .setEnd(new EventDateTime().setDateTime(new DateTime(eventStart + 5_400_000L, 180)));
+            }
+            events.add(event);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public String formatAndJoin() {
+        return events.stream().map(EventRendererBenchmark::formatEvent).collect(Collectors.joining("\n"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public String renderIntoBuilder() {
+        builder.setLength(0);
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            EventRenderer.appendEvent(builder, events.get(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The formatting {@link EventRenderer} replaced, kept as the baseline.
+     */
+    private static String formatEvent(Event event) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+        DateTime startEvent = event.getStart().getDateTime();
+        DateTime endEvent = event.getEnd().getDateTime();
+        DateTime startEventAllDay = null;
+        DateTime endEventAllDay = null;
+
+        if (startEvent == null) {
+            startEventAllDay = event.getStart().getDate();
+        }
+        if (endEvent == null) {
+            endEventAllDay = event.getEnd().getDate();
+        }
+
+        String start = "0001.01.01";
+        long eventDuration = 0L;
+
+        if (startEvent != null && endEvent != null) {
+            LocalDateTime localstartEvent = OffsetDateTime.parse(startEvent.toStringRfc3339()).toLocalDateTime();
+            start = localstartEvent.format(formatter);
+            eventDuration = (endEvent.getValue() - startEvent.getValue()) / (1000 * 60 * 60);
+        } else if (startEventAllDay != null && endEventAllDay != null) {
+            start = startEventAllDay.toString();
+        }
+
+        return String.format("Date = %s, Duration = %d, Description = %s", start, eventDuration,
+                event.getSummary());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(EventRendererBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,45 @@
+package krpaivin.telcal.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+class EventRendererTest {
+
+    @Test
+    void rendersTimedEventInItsOffset() {
+        Event event = new Event().setSummary("Dentist")
+                .setStart(new EventDateTime().setDateTime(DateTime.parseRfc3339("2024-03-01T23:30:00-05:00")))
+                .setEnd(new EventDateTime().setDateTime(DateTime.parseRfc3339("2024-03-02T01:45:00-05:00")));
+
+        assertEquals("Date = 2024-03-01 23:30, Duration = 2, Description = Dentist", EventRenderer.render(event));
+    }
+
+    @Test
+    void rendersAllDayEvent() {
+        Event event = new Event().setSummary("Holiday")
+                .setStart(new EventDateTime().setDate(DateTime.parseRfc3339("2024-12-31")))
+                .setEnd(new EventDateTime().setDate(DateTime.parseRfc3339("2025-01-01")));
+
+        assertEquals("Date = 2024-12-31, Duration = 0, Description = Holiday", EventRenderer.render(event));
+    }
+
+    @Test
+    void rendersEventWithoutDates() {
+        Event event = new Event().setStart(new EventDateTime()).setEnd(new EventDateTime());
+
+        assertEquals("Date = 0001.01.01, Duration = 0, Description = null", EventRenderer.render(event));
+    }
+
+    @Test
+    void appendsToExistingText() {
+        StringBuilder out = new StringBuilder("Events found: \n");
+        EventRenderer.appendDateTime(out, DateTime.parseRfc3339("1999-01-01T00:05:00Z").getValue(), 0);
+
+        assertEquals("Events found: \n1999-01-01 00:05", out.toString());
+    }
+}
@@ -0,0 +1,136 @@
+package krpaivin.telcal.calendar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+class MergedEventCursorTest {
+
+    /**
+     * Cursor over a fixed list of events that can fail once they are read.
+     */
+    private static class ListCursor implements EventCursor {
+        private final Iterator<Event> events;
+        private final boolean failAtEnd;
+        private boolean closed;
+
+        ListCursor(boolean failAtEnd, Event... events) {
+            this.events = List.of(events).iterator();
+            this.failAtEnd = failAtEnd;
+        }
+
+        ListCursor(Event... events) {
+            this(false, events);
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            if (!events.hasNext() && failAtEnd) {
+                throw new IOException("next page failed");
+            }
+            return events.hasNext();
+        }
+
+        @Override
+        public Event next() {
+            return events.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static Event event(String id, String iCalUid, String start) {
+        return new Event().setId(id).setICalUID(iCalUid)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)));
+    }
+
+    private static List<String> readIds(EventCursor cursor) throws IOException {
+        List<String> ids = new ArrayList<>();
+        while (cursor.hasNext()) {
+            ids.add(cursor.next().getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void mergesCalendarsByStartTime() throws IOException {
+        EventCursor merged = new MergedEventCursor(List.of(
+                new ListCursor(event("a1", "a1", "2024-03-04T09:00:00Z"), event("a2", "a2", "2024-03-04T12:00:00Z")),
+                new ListCursor(event("b1", "b1", "2024-03-04T10:00:00Z"), event("b2", "b2", "2024-03-04T11:00:00Z")),
+                new ListCursor(event("c1", "c1", "2024-03-04T08:00:00Z"))));
+
+        assertEquals(List.of("c1", "a1", "b1", "b2", "a2"), readIds(merged));
+    }
+
+    @Test
+    void keepsDistinctEventsWithEqualStart() throws IOException {
+        EventCursor merged = new MergedEventCursor(List.of(
+                new ListCursor(event("a1", "a1", "2024-03-04T09:00:00Z"), event("a2", "a2", "2024-03-04T09:00:00Z")),
+                new ListCursor(event("b1", "b1", "2024-03-04T09:00:00Z"))));
+
+        List<String> ids = readIds(merged);
+
+        assertEquals(3, ids.size());
+        assertTrue(ids.containsAll(List.of("a1", "a2", "b1")));
+    }
+
+    @Test
+    void returnsCopiesInSeveralCalendarsOnce() throws IOException {
+        EventCursor merged = new MergedEventCursor(List.of(
+                new ListCursor(event("a1", "shared", "2024-03-04T09:00:00Z"),
+                        event("a2", "other", "2024-03-04T10:00:00Z")),
+                new ListCursor(event("b1", "shared", "2024-03-04T09:00:00Z"),
+                        event("b2", "recurring", "2024-03-04T11:00:00Z")),
+                new ListCursor(event("c1", "shared", "2024-03-04T09:00:00Z"),
+                        event("c2", "recurring", "2024-03-05T11:00:00Z"))));
+
+        List<String> ids = readIds(merged);
+
+        // Occurrences of a recurring event share the iCalUID but start at different times
+        assertEquals(4, ids.size());
+        assertEquals(1, ids.stream().filter(id -> id.endsWith("1")).count());
+        assertEquals(List.of("a2", "b2", "c2"), ids.subList(1, 4));
+    }
+
+    @Test
+    void skipsEmptyCalendars() throws IOException {
+        EventCursor merged = new MergedEventCursor(List.of(new ListCursor(),
+                new ListCursor(event("a1", "a1", "2024-03-04T09:00:00Z")), new ListCursor()));
+
+        assertEquals(List.of("a1"), readIds(merged));
+        assertFalse(new MergedEventCursor(List.of(new ListCursor(), new ListCursor())).hasNext());
+        assertFalse(new MergedEventCursor(List.of()).hasNext());
+    }
+
+    @Test
+    void reportsFailingCalendarAndClosesAll() throws IOException {
+        ListCursor healthy = new ListCursor(event("a1", "a1", "2024-03-04T09:00:00Z"),
+                event("a2", "a2", "2024-03-04T12:00:00Z"));
+        ListCursor failing = new ListCursor(true, event("b1", "b1", "2024-03-04T10:00:00Z"));
+        EventCursor merged = new MergedEventCursor(List.of(healthy, failing));
+
+        assertTrue(merged.hasNext());
+        assertEquals("a1", merged.next().getId());
+        // The next page of the failing calendar is loaded when its head is taken
+        assertThrows(IOException.class, merged::hasNext);
+
+        merged.close();
+        assertTrue(healthy.closed);
+        assertTrue(failing.closed);
+    }
+}
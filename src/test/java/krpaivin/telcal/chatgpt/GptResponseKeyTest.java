@@ -0,0 +1,34 @@
+package krpaivin.telcal.chatgpt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class GptResponseKeyTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 1, 15);
+
+    @Test
+    void normalizesWhitespaceCaseAndTrailingPunctuation() {
+        assertEquals(GptResponseKey.of(TypeGPTRequest.ANALYTICS, "analytics for this week", DAY, null),
+                GptResponseKey.of(TypeGPTRequest.ANALYTICS, "  Analytics   for this\nweek. ", DAY, null));
+    }
+
+    @Test
+    void keepsCaseOfEventDescriptions() {
+        assertFalse(GptResponseKey.of(TypeGPTRequest.CREATING_EVENT, "Call John", DAY, "")
+                .equals(GptResponseKey.of(TypeGPTRequest.CREATING_EVENT, "call john", DAY, "")));
+    }
+
+    @Test
+    void differsByDayAndKeywords() {
+        GptResponseKey key = GptResponseKey.of(TypeGPTRequest.CREATING_EVENT, "gym tomorrow", DAY, "work\n");
+
+        assertFalse(key.equals(GptResponseKey.of(TypeGPTRequest.CREATING_EVENT, "gym tomorrow", DAY.plusDays(1),
+                "work\n")));
+        assertFalse(key.equals(GptResponseKey.of(TypeGPTRequest.CREATING_EVENT, "gym tomorrow", DAY, "gym\n")));
+    }
+}
@@ -0,0 +1,45 @@
+package krpaivin.telcal.chatgpt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+import krpaivin.telcal.chatgpt.PromptTemplate.Slot;
+
+class PromptTemplateTest {
+
+    private static final DateContext DATE = DateContext.of(LocalDate.of(2024, 12, 31));
+
+    @Test
+    void formatsDateContext() {
+        assertEquals("2024-12-31", DATE.today());
+        assertEquals("2025-01-01", DATE.tomorrow());
+        assertEquals("2024", DATE.currentYear());
+        assertEquals("2025", DATE.nextYear());
+        assertEquals("2024-12-31 23:59", DATE.endOfToday());
+    }
+
+    @Test
+    void rendersTextAndSlotsInOrder() {
+        PromptTemplate template = PromptTemplate.builder()
+                .text("Today: ").text("").slot(Slot.TODAY)
+                .text(", tomorrow: ").slot(Slot.TOMORROW)
+                .text("\n").slot(Slot.KEYWORDS)
+                .build();
+
+        assertTrue(template.uses(Slot.KEYWORDS));
+        assertEquals("Today: 2024-12-31, tomorrow: 2025-01-01\nwork\n", template.render(DATE, "work\n"));
+    }
+
+    @Test
+    void rendersTemplateWithoutSlots() {
+        PromptTemplate template = PromptTemplate.builder().text("ROLE:").text(" engine").build();
+
+        assertFalse(template.uses(Slot.TODAY));
+        assertEquals("ROLE: engine", template.render(DATE, null));
+    }
+}
@@ -0,0 +1,63 @@
+package krpaivin.telcal.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class KeywordMatcherTest {
+
+    private static List<String> matches(KeywordMatcher matcher, String text) {
+        int[] matched = new int[matcher.getKeywords().size()];
+        int count = matcher.match(text, matched);
+        return Arrays.stream(matched, 0, count).sorted().mapToObj(matcher.getKeywords()::get).toList();
+    }
+
+    @Test
+    void parsesKeywordsAndCompoundKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.of("Mike, Teresa,, mike", "Partner1 Partner2, My family");
+
+        assertEquals(List.of("mike", "teresa", "partner1 partner2", "my family"), matcher.getKeywords());
+    }
+
+    @Test
+    void findsOverlappingKeywordsIgnoringCase() {
+        KeywordMatcher matcher = KeywordMatcher.of("he, she, his, hers", null);
+
+        assertEquals(List.of("he", "she", "hers"), matches(matcher, "USHERS"));
+        assertEquals(List.of("his"), matches(matcher, "this"));
+        assertEquals(List.of(), matches(matcher, "nothing"));
+    }
+
+    @Test
+    void reportsEachKeywordOnce() {
+        KeywordMatcher matcher = KeywordMatcher.of("gym", "My family");
+
+        assertEquals(List.of("gym", "my family"), matches(matcher, "Gym with my family, then gym again"));
+    }
+
+    @Test
+    void agreesWithContains() {
+        List<String> keywords = List.of("ab", "abc", "bca", "c", "caab", "bb");
+        KeywordMatcher matcher = KeywordMatcher.of(String.join(",", keywords), "");
+        String[] texts = { "abcaab", "bbbb", "xyz", "cabcab", "aabbcc", "" };
+
+        for (String text : texts) {
+            List<String> expected = keywords.stream()
+                    .filter(keyword -> text.toLowerCase(Locale.ROOT).contains(keyword))
+                    .sorted((a, b) -> keywords.indexOf(a) - keywords.indexOf(b))
+                    .toList();
+            assertEquals(expected, matches(matcher, text), text);
+        }
+    }
+
+    @Test
+    void matchesNothingWithoutKeywords() {
+        KeywordMatcher matcher = KeywordMatcher.of("", null);
+
+        assertEquals(List.of(), matches(matcher, "anything"));
+    }
+}
@@ -0,0 +1,65 @@
+package krpaivin.telcal.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class LocalCommandParserTest {
+
+    // A Wednesday
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 12);
+
+    private final LocalCommandParser parser = new LocalCommandParser();
+
+    @Test
+    void parsesEventCreation() {
+        assertEquals("2025-03-13 15:00 dentist", parser.parseEventCreation("Tomorrow 15:00 dentist", TODAY));
+        assertEquals("2025-04-01 09:30 Call with John", parser.parseEventCreation("2025-04-01 9:30 Call with John",
+                TODAY));
+    }
+
+    @Test
+    void leavesOtherEventTextsToChatGpt() {
+        assertNull(parser.parseEventCreation("Meeting tomorrow at 10 discuss project", TODAY));
+        assertNull(parser.parseEventCreation("2025-02-30 10:00 impossible date", TODAY));
+        assertNull(parser.parseEventCreation("tomorrow 25:00 impossible time", TODAY));
+        assertTrue(parser.getStats().contains("EVENT: 0 parsed, 2 invalid, 1 sent to ChatGPT"));
+    }
+
+    @Test
+    void parsesAnalyticsRequest() {
+        assertEquals("2025-01-01 2025-01-31 gym", parser.parseAnalyticsRequest("2025-01-01 2025-01-31 gym", TODAY));
+        assertEquals("2025-02-01 2025-02-28 gym", parser.parseAnalyticsRequest("last month gym", TODAY));
+        assertEquals("2025-03-10 2025-03-16", parser.parseAnalyticsRequest("This week", TODAY));
+        assertEquals("2025-03-03 2025-03-09 work", parser.parseAnalyticsRequest("work last week", TODAY));
+        assertNull(parser.parseAnalyticsRequest("2025-01-31 2025-01-01", TODAY));
+        assertNull(parser.parseAnalyticsRequest("how much did I work in spring", TODAY));
+    }
+
+    @Test
+    void parsesSearchRequest() {
+        assertEquals("2025-01-01 / 2025-01-31 / gym / last",
+                parser.parseSearchRequest("2025-01-01 / 2025-01-31 / gym / last", TODAY));
+        assertEquals("2025-01-01 / 2025-01-31 /  / first",
+                parser.parseSearchRequest("2025-01-01 / 2025-01-31 / first", TODAY));
+        assertEquals("2024-01-01 / 2024-12-31 / gym / all", parser.parseSearchRequest("gym last year", TODAY));
+        assertEquals("2025-03-11 / 2025-03-11 / dentist / first",
+                parser.parseSearchRequest("yesterday first dentist", TODAY));
+        assertEquals("1900-01-01 / 2100-01-01 / dentist / last", parser.parseSearchRequest("last dentist", TODAY));
+        assertNull(parser.parseSearchRequest("meetings with John", TODAY));
+    }
+
+    @Test
+    void leavesKeywordsStartingWithSearchTypeToChatGpt() {
+        assertNull(parser.parseSearchRequest("first aid training", TODAY));
+        assertNull(parser.parseSearchRequest("all hands", TODAY));
+        assertNull(parser.parseSearchRequest("last month first aid training", TODAY));
+        assertNull(parser.parseSearchRequest("2025-01-01 2025-01-31 all hands meeting", TODAY));
+        assertNull(parser.parseSearchRequest("last month all hands", TODAY));
+        assertEquals("2025-02-01 / 2025-02-28 /  / all", parser.parseSearchRequest("last month all", TODAY));
+    }
+}
@@ -0,0 +1,33 @@
+package krpaivin.telcal.telegram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OutboundMessageSenderTest {
+
+    @Test
+    void splitsAtLastLineBreakBeforeLimit() {
+        assertEquals(List.of("one\ntwo", "three"), OutboundMessageSender.split("one\ntwo\nthree", 10));
+    }
+
+    @Test
+    void cutsAtLimitWithoutLineBreak() {
+        assertEquals(List.of("abcde", "fghij", "k"), OutboundMessageSender.split("abcdefghijk", 5));
+    }
+
+    @Test
+    void keepsTextOfExactLengthInOneChunk() {
+        assertEquals(List.of("abcde"), OutboundMessageSender.split("abcde", 5));
+        assertEquals(List.of("abcde", "fghij"), OutboundMessageSender.split("abcde\nfghij", 5));
+    }
+
+    @Test
+    void doesNotCutSurrogatePairAtLimit() {
+        String emoji = "\uD83D\uDE00";
+
+        assertEquals(List.of("abcd", emoji + "ef"), OutboundMessageSender.split("abcd" + emoji + "ef", 5));
+    }
+}